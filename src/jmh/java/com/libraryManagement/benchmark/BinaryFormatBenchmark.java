@@ -0,0 +1,94 @@
+package com.libraryManagement.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.libraryManagement.codec.BinaryFormatsConfiguration;
+import com.libraryManagement.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Encoding and decoding a page of books as JSON, CBOR and Smile, scored per book, with mappers built the way
+//BinaryFormatsConfiguration builds them for the HTTP converters.
+//The payload size of every format is printed once per trial, as bytes per book.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryFormatBenchmark {
+    private static final int ELEMENTS = 100;
+    private static final TypeReference<List<Book>> BOOK_LIST = new TypeReference<>() {
+    };
+
+    public enum Format {
+        JSON,
+        CBOR,
+        SMILE
+    }
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    public Format format;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public BookDetailPayloads.Size detailSize;
+
+    private ObjectMapper objectMapper;
+    private List<Book> rawBooks;
+    private byte[] encodedBooks;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case JSON -> Jackson2ObjectMapperBuilder.json().build();
+            case CBOR -> BinaryFormatsConfiguration.binaryMapper(Jackson2ObjectMapperBuilder.json(), new CBORFactory());
+            case SMILE -> BinaryFormatsConfiguration.binaryMapper(Jackson2ObjectMapperBuilder.json(), new SmileFactory());
+        };
+        //Books as the row mapper hands them out, with bookDetail still the stored JSON text
+        rawBooks = new ArrayList<>(ELEMENTS);
+        for (Book parsed : BookDetailPayloads.books(ELEMENTS, detailSize)) {
+            Book raw = new Book();
+            raw.setBookId(parsed.getBookId());
+            raw.setBookAuthor(parsed.getBookAuthor());
+            raw.setBookTitle(parsed.getBookTitle());
+            raw.setBookDetailJson(parsed.getBookDetailJson());
+            rawBooks.add(raw);
+        }
+        encodedBooks = objectMapper.writeValueAsBytes(rawBooks);
+        System.out.printf("%n%s payload with %s bookDetail: %d bytes per book%n", format, detailSize,
+                encodedBooks.length / ELEMENTS);
+    }
+
+    //A GET response: the stored bookDetail text is copied into the output
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public byte[] encodeBooks() throws IOException {
+        return objectMapper.writeValueAsBytes(rawBooks);
+    }
+
+    //A POST or PUT body: bookDetail is parsed into a tree, as the controller receives it
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public List<Book> decodeBooks() throws IOException {
+        return objectMapper.readValue(encodedBooks, BOOK_LIST);
+    }
+}
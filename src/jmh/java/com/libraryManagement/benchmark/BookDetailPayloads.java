@@ -0,0 +1,109 @@
+package com.libraryManagement.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.libraryManagement.model.Author;
+import com.libraryManagement.model.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//Deterministic books and authors for the benchmarks, with bookDetail documents of a chosen size.
+//SMALL matches the seed data, MEDIUM a typical catalogue entry, LARGE an entry carrying editions and reviews.
+public final class BookDetailPayloads {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String[] GENRES = {"Self-Help", "Novel", "Motivational", "Biography", "Science", "History"};
+    private static final String[] WORDS = {"habit", "focus", "deep", "work", "frog", "today", "journey", "dream",
+            "shepherd", "treasure", "system", "identity", "attention", "craft", "routine", "goal"};
+
+    public enum Size {
+        SMALL(0, 0),
+        MEDIUM(2, 3),
+        LARGE(20, 40);
+
+        private final int editions;
+        private final int reviews;
+
+        Size(int editions, int reviews) {
+            this.editions = editions;
+            this.reviews = reviews;
+        }
+    }
+
+    private BookDetailPayloads() {
+    }
+
+    public static List<Book> books(int count, Size size) {
+        Random random = new Random(42);
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String bookId = bookId(i);
+            String author = "Author " + (i % 100);
+            books.add(new Book(bookId, author, title(random), detail(random, size)));
+        }
+        return books;
+    }
+
+    public static String bookId(int index) {
+        return String.format("B%06d", index);
+    }
+
+    public static List<Author> authors(int count) {
+        List<Author> authors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            authors.add(new Author(String.format("A%05d", i), "Author " + i));
+        }
+        return authors;
+    }
+
+    public static ObjectNode detail(Random random, Size size) {
+        ObjectNode detail = OBJECT_MAPPER.createObjectNode();
+        detail.put("publishing year", String.valueOf(1950 + random.nextInt(75)));
+        detail.put("genre", GENRES[random.nextInt(GENRES.length)]);
+        if (size == Size.SMALL) {
+            return detail;
+        }
+        detail.put("publisher", "Publisher " + random.nextInt(50));
+        detail.put("isbn", String.format("978-%010d", random.nextInt(Integer.MAX_VALUE)));
+        detail.put("pages", 100 + random.nextInt(600));
+        detail.put("language", "en");
+        detail.put("summary", sentence(random, 40));
+        ArrayNode tags = detail.putArray("tags");
+        for (int i = 0; i < 5; i++) {
+            tags.add(WORDS[random.nextInt(WORDS.length)]);
+        }
+        ArrayNode editions = detail.putArray("editions");
+        for (int i = 0; i < size.editions; i++) {
+            ObjectNode edition = editions.addObject();
+            edition.put("number", i + 1);
+            edition.put("year", String.valueOf(1950 + random.nextInt(75)));
+            edition.put("format", random.nextBoolean() ? "hardcover" : "paperback");
+            edition.put("price", Math.round(random.nextDouble() * 5000) / 100.0);
+        }
+        ArrayNode reviews = detail.putArray("reviews");
+        for (int i = 0; i < size.reviews; i++) {
+            ObjectNode review = reviews.addObject();
+            review.put("reviewer", "Reader " + random.nextInt(10000));
+            review.put("rating", 1 + random.nextInt(5));
+            review.put("text", sentence(random, 60));
+        }
+        return detail;
+    }
+
+    private static String title(Random random) {
+        return sentence(random, 3);
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package com.libraryManagement.benchmark;
+
+import com.libraryManagement.model.Book;
+import com.libraryManagement.repository.BookRepository;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Per-row cost of reading books through BookRepository against an in-process H2 database in PostgreSQL mode.
+//Scores are per row; run with -prof gc to get the allocation rate per row next to the throughput.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookRowMapperBenchmark {
+    private static final int ROWS = 1000;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public BookDetailPayloads.Size detailSize;
+
+    private BookRepository bookRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        //A database per trial, kept open until the JVM exits
+        dataSource.setURL("jdbc:h2:mem:rowmapper_" + detailSize + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table books (book_id varchar(50) primary key, book_author varchar(50) not null, " +
+                "book_title varchar(50) not null, book_detail jsonb not null, author_id varchar(10), " +
+                "version bigint default 1 not null, updated_at timestamp with time zone default current_timestamp not null)");
+        List<Book> books = BookDetailPayloads.books(ROWS, detailSize);
+        //FORMAT JSON stores the document itself, as PostgreSQL's jsonb would, instead of a JSON string
+        jdbcTemplate.batchUpdate("insert into books (book_id, book_author, book_title, book_detail) values (?, ?, ?, ? format json)",
+                books.stream().map(book -> new Object[]{book.getBookId(), book.getBookAuthor(), book.getBookTitle(),
+                        book.getBookDetailJson()}).toList());
+        bookRepository = new BookRepository(jdbcTemplate);
+    }
+
+    //Reading the rows only, bookDetail stays raw text as it does when it is passed straight to the response
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Book> readRows() {
+        return bookRepository.getAllBooks();
+    }
+
+    //Reading the rows and parsing every bookDetail, as validation and in-process consumers do
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void readAndParseRows(Blackhole blackhole) {
+        for (Book book : bookRepository.getAllBooks()) {
+            blackhole.consume(book.getBookDetail());
+        }
+    }
+}
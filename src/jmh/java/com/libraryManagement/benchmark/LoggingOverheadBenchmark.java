@@ -0,0 +1,129 @@
+package com.libraryManagement.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.libraryManagement.model.Book;
+import com.libraryManagement.repository.BookRepository;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//Cost of logging on the repository hot paths: getBook and createBook against in-process H2, with logging
+//OFF, at INFO (the rate limited lines) written synchronously or through the async appender,
+//and at DEBUG synchronously, which is roughly what every call used to log at INFO.
+//Events are formatted and written to a null stream, so the scores show the logging work and not the terminal.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LoggingOverheadBenchmark {
+    private static final int BOOKS = 1000;
+
+    public enum LogMode {
+        OFF,
+        INFO_SYNC,
+        INFO_ASYNC,
+        DEBUG_SYNC
+    }
+
+    @Param({"OFF", "INFO_SYNC", "INFO_ASYNC", "DEBUG_SYNC"})
+    public LogMode logMode;
+
+    private BookRepository bookRepository;
+    private List<Book> newBooks;
+    private LoggerContext loggerContext;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() {
+        configureLogging();
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:logging_" + logMode + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table authors (author_id varchar(10) primary key, author_name varchar(50) not null, " +
+                "version bigint default 1 not null, updated_at timestamp with time zone default current_timestamp not null)");
+        jdbcTemplate.execute("create table books (book_id varchar(50) primary key, book_author varchar(50) not null, " +
+                "book_title varchar(50) not null, book_detail jsonb not null, author_id varchar(10), " +
+                "version bigint default 1 not null, updated_at timestamp with time zone default current_timestamp not null)");
+        bookRepository = new BookRepository(jdbcTemplate);
+        bookRepository.createBooks(BookDetailPayloads.books(BOOKS, BookDetailPayloads.Size.MEDIUM));
+        newBooks = BookDetailPayloads.books(BOOKS, BookDetailPayloads.Size.MEDIUM);
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() {
+        loggerContext.stop();
+    }
+
+    @Benchmark
+    public Optional<Book> getBook() {
+        return bookRepository.getBook(BookDetailPayloads.bookId(ThreadLocalRandom.current().nextInt(BOOKS)));
+    }
+
+    //Every book id is taken already, so the statement is a cheap ON CONFLICT DO NOTHING and logging dominates less
+    @Benchmark
+    public boolean createExistingBook() {
+        return bookRepository.createBook(newBooks.get(ThreadLocalRandom.current().nextInt(BOOKS)));
+    }
+
+    private void configureLogging() {
+        loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.reset();
+        ch.qos.logback.classic.Logger root = loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        if (logMode == LogMode.OFF) {
+            root.setLevel(Level.OFF);
+            return;
+        }
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p [%t] %logger{39} : %m%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> output = new OutputStreamAppender<>();
+        output.setContext(loggerContext);
+        output.setEncoder(encoder);
+        output.setOutputStream(OutputStream.nullOutputStream());
+        output.start();
+        Appender<ILoggingEvent> appender = output;
+        if (logMode == LogMode.INFO_ASYNC) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(loggerContext);
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.addAppender(output);
+            async.start();
+            appender = async;
+        }
+        root.addAppender(appender);
+        root.setLevel(Level.INFO);
+        if (logMode == LogMode.DEBUG_SYNC) {
+            loggerContext.getLogger("com.libraryManagement").setLevel(Level.DEBUG);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.libraryManagement.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryManagement.model.Author;
+import com.libraryManagement.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Jackson serialization of the Book and Author lists the list endpoints return, scored per element.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final int ELEMENTS = 100;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public BookDetailPayloads.Size detailSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Book> rawBooks;
+    private List<Book> parsedBooks;
+    private List<Author> authors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        parsedBooks = BookDetailPayloads.books(ELEMENTS, detailSize);
+        //Books as the row mapper hands them out, with bookDetail still the stored JSON text
+        rawBooks = new ArrayList<>(ELEMENTS);
+        for (Book parsed : parsedBooks) {
+            Book raw = new Book();
+            raw.setBookId(parsed.getBookId());
+            raw.setBookAuthor(parsed.getBookAuthor());
+            raw.setBookTitle(parsed.getBookTitle());
+            raw.setBookDetailJson(parsed.getBookDetailJson());
+            rawBooks.add(raw);
+        }
+        authors = BookDetailPayloads.authors(ELEMENTS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public byte[] writeBooksWithRawDetail() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(rawBooks);
+    }
+
+    //Books whose bookDetail was parsed into a tree, for instance after validation
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public byte[] writeBooksWithParsedDetail() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(parsedBooks);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public byte[] writeAuthors() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(authors);
+    }
+}
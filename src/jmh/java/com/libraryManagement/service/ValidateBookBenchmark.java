@@ -0,0 +1,69 @@
+package com.libraryManagement.service;
+
+import com.libraryManagement.benchmark.BookDetailPayloads;
+import com.libraryManagement.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Cost of LibraryService.validateBook per book. It lives in the service package because validateBook is package-private.
+//A fresh copy of the books is made per invocation, so every validation parses its bookDetail text as a request body would.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidateBookBenchmark {
+    private static final int BOOKS = 100;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public BookDetailPayloads.Size detailSize;
+
+    private LibraryService libraryService;
+    private List<Book> books;
+    private Book[] batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //validateBook touches none of the collaborators
+        libraryService = new LibraryService(null, null, null, null, null, true);
+        books = BookDetailPayloads.books(BOOKS, detailSize);
+        batch = new Book[BOOKS];
+    }
+
+    @Setup(Level.Invocation)
+    public void copyBooks() {
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = books.get(i);
+            Book copy = new Book();
+            copy.setBookId(book.getBookId());
+            copy.setBookAuthor(book.getBookAuthor());
+            copy.setBookTitle(book.getBookTitle());
+            copy.setBookDetailJson(book.getBookDetailJson());
+            batch[i] = copy;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public Book[] validateBooks() {
+        for (Book book : batch) {
+            libraryService.validateBook(book);
+        }
+        return batch;
+    }
+}
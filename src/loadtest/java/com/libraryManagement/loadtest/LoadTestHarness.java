@@ -0,0 +1,280 @@
+package com.libraryManagement.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.libraryManagement.Application;
+import com.libraryManagement.cache.AuthorDirectory;
+import com.libraryManagement.model.Author;
+import com.libraryManagement.model.Book;
+import com.libraryManagement.repository.AuthorRepository;
+import com.libraryManagement.repository.BookRepository;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//Boots Application against the embedded H2 database of the test profile, seeds it and drives a mix of /library endpoints.
+//Latencies go into one HDR histogram per endpoint; throughput and p50/p99/p999 are printed and the full
+//percentile distributions are written to target/loadtest for comparing runs.
+//
+//Closed model (load.mode=closed): load.concurrency clients each send their next request as soon as the last one returned.
+//Open model (load.mode=open): requests start at load.rate per second whatever the response times are, and latency is
+//measured from the intended start time so a stalled server is not hidden by the load generator slowing down.
+//
+//Thread models: run once as is and once with -Dspring.threads.virtual.enabled=true on Java 21 or newer, which also turns
+//on the database bulkhead, at a load.concurrency well above Tomcat's 200 platform threads.
+public class LoadTestHarness {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int SEED_CHUNK = 5000;
+    private static final String[] GENRES = {"Self-Help", "Novel", "Motivational", "Biography", "Science", "History"};
+
+    private final int books = Integer.getInteger("load.books", 10000);
+    private final int authors = Integer.getInteger("load.authors", 1000);
+    private final String mode = System.getProperty("load.mode", "closed");
+    private final int concurrency = Integer.getInteger("load.concurrency", 16);
+    private final int rate = Integer.getInteger("load.rate", 1000);
+    private final int maxInFlight = Integer.getInteger("load.max-in-flight", 1000);
+    private final Duration warmup = Duration.ofSeconds(Integer.getInteger("load.warmup-seconds", 10));
+    private final Duration duration = Duration.ofSeconds(Integer.getInteger("load.duration-seconds", 30));
+    private final RequestMix mix = RequestMix.parse(System.getProperty("load.mix",
+            "getBook=40,getAuthor=20,booksPage=10,booksOfAuthor=10,search=10,suggest=10"));
+    private final Path reportDirectory = Path.of(System.getProperty("load.report-dir", "target/loadtest"));
+
+    private final Map<RequestMix.Endpoint, Recorder> recorders = new EnumMap<>(RequestMix.Endpoint.class);
+    private final Map<RequestMix.Endpoint, LongAdder> errors = new EnumMap<>(RequestMix.Endpoint.class);
+    private HttpClient httpClient;
+    private String baseUrl;
+
+    public static void main(String[] args) throws Exception {
+        new LoadTestHarness().run();
+    }
+
+    static String bookId(int index) {
+        return String.format("B%06d", index);
+    }
+
+    static String authorId(int index) {
+        return String.format("A%05d", index);
+    }
+
+    private void run() throws Exception {
+        for (RequestMix.Endpoint endpoint : mix.endpoints()) {
+            //Three significant digits, auto resizing, values in microseconds
+            recorders.put(endpoint, new Recorder(3));
+            errors.put(endpoint, new LongAdder());
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .profiles("test")
+                .properties("server.port=0",
+                        "logging.level.root=WARN",
+                        "spring.jpa.show-sql=false",
+                        "spring.h2.console.enabled=false")
+                .run();
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(Math.max(concurrency, 8));
+        try {
+            seed(context);
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            System.out.printf("Running %s model for %ss after %ss warm-up on %s server threads, mix %s%n",
+                    mode, duration.toSeconds(), warmup.toSeconds(),
+                    Threading.VIRTUAL.isActive(context.getEnvironment()) ? "virtual" : "platform", mix.endpoints());
+            long measureStart = System.nanoTime() + warmup.toNanos();
+            long end = measureStart + duration.toNanos();
+            if ("open".equals(mode)) {
+                runOpen(measureStart, end);
+            } else if ("closed".equals(mode)) {
+                runClosed(measureStart, end);
+            } else {
+                throw new IllegalArgumentException("Error: load.mode must be open or closed");
+            }
+            report();
+        } finally {
+            clientExecutor.shutdownNow();
+            context.close();
+        }
+    }
+
+    private void seed(ConfigurableApplicationContext context) {
+        System.out.printf("Seeding %d authors and %d books%n", authors, books);
+        AuthorRepository authorRepository = context.getBean(AuthorRepository.class);
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        List<Author> authorChunk = new ArrayList<>(SEED_CHUNK);
+        for (int i = 0; i < authors; i++) {
+            authorChunk.add(new Author(authorId(i), "Load Author " + i));
+            if (authorChunk.size() == SEED_CHUNK || i == authors - 1) {
+                authorRepository.createAuthors(authorChunk);
+                authorChunk.clear();
+            }
+        }
+        Random random = new Random(42);
+        List<Book> bookChunk = new ArrayList<>(SEED_CHUNK);
+        for (int i = 0; i < books; i++) {
+            bookChunk.add(new Book(bookId(i), "Load Author " + random.nextInt(authors), title(random), detail(random)));
+            if (bookChunk.size() == SEED_CHUNK || i == books - 1) {
+                bookRepository.createBooks(bookChunk);
+                bookChunk.clear();
+            }
+        }
+        //The directory was loaded before the seed authors existed
+        context.getBean(AuthorDirectory.class).invalidate();
+    }
+
+    private void runClosed(long measureStart, long end) throws InterruptedException {
+        List<Thread> clients = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread client = new Thread(() -> {
+                Random random = ThreadLocalRandom.current();
+                while (System.nanoTime() < end) {
+                    RequestMix.Endpoint endpoint = mix.next(random);
+                    long start = System.nanoTime();
+                    boolean ok = send(endpoint, random);
+                    record(endpoint, start, System.nanoTime(), measureStart, ok);
+                }
+            }, "load-client-" + i);
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+    }
+
+    private void runOpen(long measureStart, long end) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        Random random = new Random();
+        long intendedStart = System.nanoTime();
+        while (intendedStart < end) {
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            RequestMix.Endpoint endpoint = mix.next(random);
+            long scheduled = intendedStart;
+            inFlight.acquire();
+            httpClient.sendAsync(request(endpoint, random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        inFlight.release();
+                        boolean ok = failure == null && response.statusCode() < 400;
+                        record(endpoint, scheduled, System.nanoTime(), measureStart, ok);
+                    });
+            intendedStart += intervalNanos;
+        }
+        //Letting the requests still in flight finish
+        inFlight.acquire(maxInFlight);
+    }
+
+    private boolean send(RequestMix.Endpoint endpoint, Random random) {
+        try {
+            HttpResponse<Void> response = httpClient.send(request(endpoint, random), HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() < 400;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private HttpRequest request(RequestMix.Endpoint endpoint, Random random) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + endpoint.path(random, books, authors)))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private void record(RequestMix.Endpoint endpoint, long start, long finish, long measureStart, boolean ok) {
+        if (start < measureStart) {
+            return;
+        }
+        if (ok) {
+            recorders.get(endpoint).recordValue(TimeUnit.NANOSECONDS.toMicros(finish - start));
+        } else {
+            errors.get(endpoint).increment();
+        }
+    }
+
+    private void report() throws IOException {
+        Files.createDirectories(reportDirectory);
+        double seconds = duration.toMillis() / 1000.0;
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        System.out.printf("%n%-15s %10s %10s %10s %10s %10s %10s %8s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+        for (RequestMix.Endpoint endpoint : mix.endpoints()) {
+            Histogram histogram = recorders.get(endpoint).getIntervalHistogram();
+            long endpointErrors = errors.get(endpoint).sum();
+            printRow(endpoint.name(), histogram, seconds, endpointErrors);
+            total.add(histogram);
+            totalErrors += endpointErrors;
+            writeDistribution(endpoint.name(), histogram);
+        }
+        printRow("total", total, seconds, totalErrors);
+        writeDistribution("total", total);
+        System.out.printf("%nPercentile distributions written to %s%n", reportDirectory.toAbsolutePath());
+    }
+
+    private static void printRow(String name, Histogram histogram, double seconds, long errors) {
+        System.out.printf("%-15s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n",
+                name, histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                millis(histogram, 50.0), millis(histogram, 99.0), millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0, errors);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private void writeDistribution(String name, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(reportDirectory.resolve(name + ".hgrm")))) {
+            //Scaled to milliseconds, the format HdrHistogram's plotter reads
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static String title(Random random) {
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(RequestMix.TITLE_WORDS[random.nextInt(RequestMix.TITLE_WORDS.length)]);
+        }
+        return title.toString();
+    }
+
+    private static ObjectNode detail(Random random) {
+        ObjectNode detail = OBJECT_MAPPER.createObjectNode();
+        detail.put("publishing year", String.valueOf(1950 + random.nextInt(75)));
+        detail.put("genre", GENRES[random.nextInt(GENRES.length)]);
+        detail.put("publisher", "Publisher " + random.nextInt(50));
+        detail.put("pages", 100 + random.nextInt(600));
+        return detail;
+    }
+}
@@ -0,0 +1,99 @@
+package com.libraryManagement.loadtest;
+
+import com.libraryManagement.model.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//Weighted mix of /library endpoints, parsed from a list such as "getBook=50,getAuthor=20,search=5"
+public class RequestMix {
+    static final String[] TITLE_WORDS = {"habit", "focus", "deep", "work", "frog", "today", "journey", "dream",
+            "shepherd", "treasure", "system", "identity", "attention", "craft", "routine", "goal"};
+
+    public enum Endpoint {
+        getBook {
+            @Override
+            String path(Random random, int books, int authors) {
+                return "/library/books/" + LoadTestHarness.bookId(random.nextInt(books));
+            }
+        },
+        getAuthor {
+            @Override
+            String path(Random random, int books, int authors) {
+                return "/library/authors/" + LoadTestHarness.authorId(random.nextInt(authors));
+            }
+        },
+        booksPage {
+            @Override
+            String path(Random random, int books, int authors) {
+                return "/library/books?limit=100&after=" + Page.encodeCursor(LoadTestHarness.bookId(random.nextInt(books)));
+            }
+        },
+        booksOfAuthor {
+            @Override
+            String path(Random random, int books, int authors) {
+                return "/library/authors/" + LoadTestHarness.authorId(random.nextInt(authors)) + "/books?limit=20";
+            }
+        },
+        search {
+            @Override
+            String path(Random random, int books, int authors) {
+                return "/library/books/search?limit=20&q=" + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)];
+            }
+        },
+        suggest {
+            @Override
+            String path(Random random, int books, int authors) {
+                return "/library/authors/suggest?prefix=Load%20Author%20" + random.nextInt(10);
+            }
+        };
+
+        abstract String path(Random random, int books, int authors);
+    }
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+    private int totalWeight;
+
+    public static RequestMix parse(String mix) {
+        RequestMix requestMix = new RequestMix();
+        for (String entry : mix.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Error: mix entries must look like endpoint=weight, got '" + entry + "'");
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                requestMix.add(Endpoint.valueOf(parts[0].trim()), weight);
+            }
+        }
+        if (requestMix.endpoints.isEmpty()) {
+            throw new IllegalArgumentException("Error: the request mix is empty");
+        }
+        return requestMix;
+    }
+
+    private void add(Endpoint endpoint, int weight) {
+        totalWeight += weight;
+        endpoints.add(endpoint);
+        cumulativeWeights.add(totalWeight);
+    }
+
+    public List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    public Endpoint next(Random random) {
+        int pick = random.nextInt(totalWeight);
+        for (int i = 0; i < endpoints.size(); i++) {
+            if (pick < cumulativeWeights.get(i)) {
+                return endpoints.get(i);
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+}
@@ -0,0 +1,237 @@
+package com.libraryManagement.cache;
+
+import com.libraryManagement.model.Author;
+import com.libraryManagement.repository.AuthorRepository;
+import com.libraryManagement.routing.ReadRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Immutable, versioned snapshot of the whole authors table, indexed by id and sorted by name.
+//Readers take the current snapshot without locking; every author write builds a patched copy
+//and swaps it in once the write has committed. After bulk changes the snapshot is reloaded on a
+//background thread while readers keep the previous one, so a reader never opens a second connection
+//or transaction from inside its own.
+@Component
+public class AuthorDirectory implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(AuthorDirectory.class);
+
+    private final AuthorRepository authorRepository;
+    private final TransactionTemplate loadTransaction;
+    //A lock rather than synchronized: patches and swaps may run on virtual threads,
+    //and a virtual thread blocked inside a monitor pins its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ThreadPoolExecutor reloadExecutor;
+    private volatile Snapshot snapshot;
+    private long nextVersion = 1;
+    //Counts the patches, a reload that saw fewer than there are now read the table before one of them
+    private long writes;
+
+    public AuthorDirectory(AuthorRepository authorRepository, PlatformTransactionManager transactionManager) {
+        this.authorRepository = authorRepository;
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        loadTransaction.setReadOnly(true);
+        //One daemon thread and one waiting reload at most; the waiting one reads after every change that asked for it
+        this.reloadExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), runnable -> {
+            Thread thread = new Thread(runnable, "author-directory-reload");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    //Loading the first snapshot before traffic arrives, so lookups never wait on the database
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        //Not loaded yet, the warm-up failed: the shared snapshot is loaded in the background, and this caller
+        //indexes the authors read over its own connection, the one its transaction already holds
+        scheduleReload();
+        return new Snapshot(0, index(authorRepository.getAllAuthor()));
+    }
+
+    //Replacing or adding one author once the surrounding transaction has committed
+    public void authorWritten(Author author) {
+        afterCommit(() -> patch(author.getAuthorId(), author));
+    }
+
+    //Removing one author once the surrounding transaction has committed
+    public void authorDeleted(String authorId) {
+        afterCommit(() -> patch(authorId, null));
+    }
+
+    //Reloading the snapshot after bulk changes once they have committed; readers keep the previous one until then
+    public void invalidate() {
+        afterCommit(this::scheduleReload);
+    }
+
+    @Override
+    public void destroy() {
+        reloadExecutor.shutdownNow();
+    }
+
+    private void scheduleReload() {
+        try {
+            reloadExecutor.execute(this::reload);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Skipping the reload of the author directory, the reload thread is stopped");
+        }
+    }
+
+    private void reload() {
+        long writesBefore;
+        lock.lock();
+        try {
+            writesBefore = writes;
+        } finally {
+            lock.unlock();
+        }
+        Map<String, Author> byId;
+        try {
+            //Read from the primary: the snapshot is shared and kept until the next change, so it must not come from a
+            //lagging replica. This thread holds no other connection, so the load cannot wait on the caller's pool
+            byId = index(ReadRouting.onPrimary(() -> loadTransaction.execute(status -> authorRepository.getAllAuthor())));
+        } catch (RuntimeException e) {
+            logger.warn("Could not load the author directory: {}", e.getMessage());
+            return;
+        }
+        lock.lock();
+        try {
+            if (writes != writesBefore && snapshot != null) {
+                //An author was patched in after the table was read; the patched snapshot stays and the table is read again
+                scheduleReload();
+                return;
+            }
+            snapshot = new Snapshot(nextVersion++, byId);
+            logger.info("Loaded author directory version {} with {} authors", snapshot.version(), byId.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Map<String, Author> index(List<Author> authors) {
+        Map<String, Author> byId = new HashMap<>();
+        for (Author author : authors) {
+            byId.put(author.getAuthorId(), author);
+        }
+        return byId;
+    }
+
+    private void patch(String authorId, Author author) {
+        lock.lock();
+        try {
+            writes++;
+            if (snapshot == null) {
+                return;
+            }
+            Map<String, Author> byId = new HashMap<>(snapshot.byId);
+            if (author == null) {
+                byId.remove(authorId);
+            } else {
+                byId.put(authorId, new Author(author.getAuthorId(), author.getAuthorName()));
+            }
+            snapshot = new Snapshot(nextVersion++, byId);
+            logger.debug("Swapped in author directory version {}", snapshot.version());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    public static final class Snapshot {
+        private final long version;
+        private final Map<String, Author> byId;
+        //Authors sorted by lower case name, prefix lookups binary search into it
+        private final Author[] sortedByName;
+        private final String[] sortedNames;
+
+        private Snapshot(long version, Map<String, Author> byId) {
+            this.version = version;
+            this.byId = Collections.unmodifiableMap(byId);
+            this.sortedByName = byId.values().toArray(new Author[0]);
+            Arrays.sort(sortedByName, Comparator.comparing((Author author) -> normalize(author.getAuthorName()))
+                    .thenComparing(Author::getAuthorId));
+            this.sortedNames = new String[sortedByName.length];
+            for (int i = 0; i < sortedByName.length; i++) {
+                sortedNames[i] = normalize(sortedByName[i].getAuthorName());
+            }
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public Author byId(String authorId) {
+            return byId.get(authorId);
+        }
+
+        public int size() {
+            return byId.size();
+        }
+
+        //Up to limit authors whose name starts with the prefix, ignoring case, in name order
+        public List<Author> suggest(String prefix, int limit) {
+            String normalizedPrefix = normalize(prefix);
+            //First name not below the prefix; Arrays.binarySearch could land in the middle of equal names
+            int from = 0;
+            int to = sortedNames.length;
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+                if (sortedNames[middle].compareTo(normalizedPrefix) < 0) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+            List<Author> suggestions = new ArrayList<>(Math.min(limit, sortedNames.length - from));
+            for (int i = from; i < sortedNames.length && suggestions.size() < limit
+                    && sortedNames[i].startsWith(normalizedPrefix); i++) {
+                suggestions.add(sortedByName[i]);
+            }
+            return suggestions;
+        }
+
+        private static String normalize(String name) {
+            return name == null ? "" : name.toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.libraryManagement.cache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.libraryManagement.model.Author;
+import com.libraryManagement.model.Book;
+import com.libraryManagement.repository.AuthorRepository;
+import com.libraryManagement.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+//Bounded read-through cache in front of the book and author point lookups.
+//Entries are weighed by their approximate size, so a few large bookDetail documents
+//cannot push the whole hot set out, and missing ids are remembered for a short time only.
+@Component
+public class LibraryCache {
+    private static final Logger logger = LoggerFactory.getLogger(LibraryCache.class);
+
+    private final LoadingCache<String, Optional<Book>> books;
+    private final LoadingCache<String, Optional<Author>> authors;
+
+    public LibraryCache(BookRepository bookRepository, AuthorRepository authorRepository,
+                        @Value("${library.cache.max-weight-bytes:67108864}") long maxWeightBytes,
+                        @Value("${library.cache.ttl:PT10M}") Duration ttl,
+                        @Value("${library.cache.refresh-after:PT1M}") Duration refreshAfter,
+                        @Value("${library.cache.negative-ttl:PT5S}") Duration negativeTtl,
+                        Environment environment) {
+        logger.info("Creating library cache with max weight {} bytes, ttl {}, refresh after {}, negative ttl {}",
+                maxWeightBytes, ttl, refreshAfter, negativeTtl);
+        Executor loadExecutor = null;
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor virtualThreads = new SimpleAsyncTaskExecutor("library-cache-");
+            virtualThreads.setVirtualThreads(true);
+            loadExecutor = virtualThreads;
+        }
+        this.books = build(Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes / 2)
+                .weigher((String bookId, Optional<Book> book) -> book.map(LibraryCache::weigh).orElse(bookId.length()))
+                .expireAfter(new PositiveNegativeExpiry<Book>(ttl, negativeTtl))
+                .refreshAfterWrite(refreshAfter)
+                .recordStats(), bookRepository::getBook, loadExecutor);
+        this.authors = build(Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes / 2)
+                .weigher((String authorId, Optional<Author> author) -> author.map(LibraryCache::weigh).orElse(authorId.length()))
+                .expireAfter(new PositiveNegativeExpiry<Author>(ttl, negativeTtl))
+                .refreshAfterWrite(refreshAfter)
+                .recordStats(), authorRepository::getAuthor, loadExecutor);
+    }
+
+    //A synchronous load runs inside the lock of the cache's hash bin, and a virtual thread blocked on the database
+    //there pins its carrier thread. With virtual threads the loads run on a virtual thread of their own instead,
+    //and the caller waits on the future outside the lock.
+    private static <T> LoadingCache<String, Optional<T>> build(Caffeine<String, Optional<T>> builder,
+                                                               CacheLoader<String, Optional<T>> loader,
+                                                               Executor loadExecutor) {
+        if (loadExecutor == null) {
+            return builder.build(loader);
+        }
+        return builder.executor(loadExecutor).buildAsync(loader).synchronous();
+    }
+
+    public Optional<Book> getBook(String bookId) {
+        return books.get(bookId);
+    }
+
+    public Optional<Author> getAuthor(String authorId) {
+        return authors.get(authorId);
+    }
+
+    //The cached book without loading it, null when the id is not in the cache (an absent book is cached as empty)
+    public Optional<Book> peekBook(String bookId) {
+        return books.getIfPresent(bookId);
+    }
+
+    public Optional<Author> peekAuthor(String authorId) {
+        return authors.getIfPresent(authorId);
+    }
+
+    //Evicting right away and again once the surrounding transaction completes, so a read racing the write cannot keep the old row
+    public void invalidateBook(String bookId) {
+        evict(() -> books.invalidate(bookId));
+    }
+
+    public void invalidateBooks(Collection<String> bookIds) {
+        evict(() -> books.invalidateAll(bookIds));
+    }
+
+    public void invalidateAllBooks() {
+        evict(books::invalidateAll);
+    }
+
+    public void invalidateAuthor(String authorId) {
+        evict(() -> authors.invalidate(authorId));
+    }
+
+    public void invalidateAuthors(Collection<String> authorIds) {
+        evict(() -> authors.invalidateAll(authorIds));
+    }
+
+    public void invalidateAll() {
+        evict(() -> {
+            books.invalidateAll();
+            authors.invalidateAll();
+        });
+    }
+
+    //Hit, miss and eviction counters of both caches, used to size the cache
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        stats.put("books", stats(books));
+        stats.put("authors", stats(authors));
+        return stats;
+    }
+
+    private static Map<String, Object> stats(LoadingCache<String, ?> cache) {
+        CacheStats cacheStats = cache.stats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hitCount", cacheStats.hitCount());
+        stats.put("missCount", cacheStats.missCount());
+        stats.put("hitRate", cacheStats.hitRate());
+        stats.put("loadCount", cacheStats.loadCount());
+        stats.put("averageLoadPenaltyNanos", cacheStats.averageLoadPenalty());
+        stats.put("evictionCount", cacheStats.evictionCount());
+        stats.put("evictionWeight", cacheStats.evictionWeight());
+        stats.put("estimatedSize", cache.estimatedSize());
+        cache.policy().eviction().ifPresent(eviction -> {
+            stats.put("weightedSize", eviction.weightedSize().orElse(0));
+            stats.put("maximumWeight", eviction.getMaximum());
+        });
+        return stats;
+    }
+
+    private static void evict(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    //Approximate retained size in bytes, dominated by the bookDetail document
+    private static int weigh(Book book) {
+        int weight = 64 + 2 * (length(book.getBookId()) + length(book.getBookAuthor()) + length(book.getBookTitle()));
+        String bookDetailJson = book.getBookDetailJson();
+        if (bookDetailJson != null) {
+            //A parsed tree is several times larger than its text
+            weight += 4 * bookDetailJson.length();
+        }
+        return weight;
+    }
+
+    private static int weigh(Author author) {
+        return 48 + 2 * (length(author.getAuthorId()) + length(author.getAuthorName()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    //Found rows live for the full ttl, missing ids only for the short negative ttl
+    private static class PositiveNegativeExpiry<T> implements Expiry<String, Optional<T>> {
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        PositiveNegativeExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Optional<T> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Optional<T> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Optional<T> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
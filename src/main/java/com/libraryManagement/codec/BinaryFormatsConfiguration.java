@@ -0,0 +1,37 @@
+package com.libraryManagement.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+//application/cbor and application/x-jackson-smile for request and response bodies, next to JSON.
+//Spring Boot adds HttpMessageConverter beans to Spring MVC ahead of its defaults; building them from Boot's
+//Jackson2ObjectMapperBuilder keeps the spring.jackson.* settings of the JSON mapper.
+@Configuration(proxyBeanMethods = false)
+public class BinaryFormatsConfiguration {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(binaryMapper(builder, new CBORFactory()));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(binaryMapper(builder, new SmileFactory()));
+    }
+
+    //A mapper for a binary format that can also write the RawValue columns of field projections
+    public static ObjectMapper binaryMapper(Jackson2ObjectMapperBuilder builder, JsonFactory factory) {
+        SimpleModule rawValues = new SimpleModule("RawJsonValues");
+        rawValues.addSerializer(RawValue.class, new RawJsonSerializer());
+        return builder.factory(factory).postConfigurer(mapper -> mapper.registerModule(rawValues)).build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.libraryManagement.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+
+//Writes JSON text that is already valid JSON, a book_detail column for instance, as a value of the document.
+//JSON output gets the text as it is, like @JsonRawValue. Binary formats (CBOR, Smile) cannot carry raw text,
+//so there the text is read with a streaming parser and its tokens are copied over, without building a tree.
+//Handles String and RawValue values.
+public class RawJsonSerializer extends StdSerializer<Object> {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public RawJsonSerializer() {
+        super(Object.class);
+    }
+
+    @Override
+    public void serialize(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        String json = text(value);
+        if (json == null) {
+            generator.writeNull();
+        } else if (!generator.canWriteBinaryNatively() || generator instanceof TokenBuffer) {
+            //Text formats, and the token buffers Jackson uses internally, take the raw text
+            generator.writeRawValue(json);
+        } else {
+            try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+                parser.nextToken();
+                generator.copyCurrentStructure(parser);
+            }
+        }
+    }
+
+    private static String text(Object value) {
+        if (value instanceof RawValue raw) {
+            Object rawValue = raw.rawValue();
+            if (rawValue instanceof SerializableString serializable) {
+                return serializable.getValue();
+            }
+            return rawValue == null ? null : rawValue.toString();
+        }
+        return value == null ? null : value.toString();
+    }
+}
@@ -1,38 +1,89 @@
 package com.libraryManagement.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.libraryManagement.model.Book;
 import com.libraryManagement.model.Author;
+import com.libraryManagement.model.BatchItemResult;
+import com.libraryManagement.model.Page;
+import com.libraryManagement.model.RowVersion;
+import com.libraryManagement.repository.BookFilter;
+import com.libraryManagement.routing.ConsistencyToken;
+import com.libraryManagement.routing.ReadRouting;
 import com.libraryManagement.service.LibraryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/library")
 public class LibraryController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int NDJSON_FLUSH_INTERVAL = 100;
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
 
     private final LibraryService libraryService;
+    private final ObjectMapper objectMapper;
     private static final Logger logger = LoggerFactory.getLogger(LibraryController.class);
     @Autowired
-    public LibraryController(LibraryService libraryService) {
+    public LibraryController(LibraryService libraryService, ObjectMapper objectMapper) {
         this.libraryService = libraryService;
+        this.objectMapper = objectMapper;
+    }
+
+    //Suggesting authors whose name starts with the typed prefix
+    @GetMapping("/authors/suggest")
+    public ResponseEntity<?> suggestAuthors(@RequestParam(value = "prefix", required = false) String prefix,
+                                            @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(libraryService.suggestAuthors(prefix, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error while suggesting the authors: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred" + e.getMessage());
+        }
     }
 
     // Fetching a specific author by its id
     @GetMapping("/authors/{authorId}")
-    public ResponseEntity<?> getAuthorDetails(@PathVariable("authorId") String authorId) {
+    public ResponseEntity<?> getAuthorDetails(@PathVariable("authorId") String authorId,
+                                              @RequestParam(value = "fields", required = false) String fields,
+                                              WebRequest webRequest) {
         try {
+            if (fields != null) {
+                Optional<Map<String, Object>> author = libraryService.getAuthorFields(authorId, fields);
+                return author.<ResponseEntity<?>>map(ResponseEntity::ok)
+                        .orElseGet(() -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            }
+            if (isConditional(webRequest) && notModified(webRequest, libraryService.getAuthorVersion(authorId))) {
+                return null;
+            }
             Optional<Author> author = libraryService.getAuthor(authorId);
-            return author.map(ResponseEntity::ok)
+            return author.<ResponseEntity<?>>map(found -> versioned(found.rowVersion(), webRequest).body(found))
                     .orElseGet(() -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (BadSqlGrammarException e) {
             logger.error("SQL syntax error {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("SQL syntax error occurred: {}" + e.getMessage());
@@ -42,12 +93,19 @@ public class LibraryController {
         }
     }
 
-    //Fetching the list of authors
+    //Fetching the list of authors, one keyset page at a time
     @GetMapping("/authors")
-    public ResponseEntity<?> getAllAuthor() {
+    public ResponseEntity<?> getAllAuthor(@RequestParam(value = "after", required = false) String after,
+                                          @RequestParam(value = "limit", required = false) Integer limit,
+                                          @RequestParam(value = "fields", required = false) String fields) {
         try {
-            List<Author> authors = libraryService.getAllAuthors();
-            return ResponseEntity.ok(authors);
+            if (fields != null) {
+                return pageResponse(libraryService.getAuthorsPage(after, limit, fields));
+            }
+            Page<Author> page = libraryService.getAuthorsPage(after, limit);
+            return pageResponse(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (BadSqlGrammarException e) {
             logger.error("SQL syntax error {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("SQL syntax error occurred: {}" + e.getMessage());
@@ -57,6 +115,53 @@ public class LibraryController {
         }
     }
 
+    //Fetching many authors by id in one request, e.g. ?ids=A101,A102; results follow the order of the ids
+    @GetMapping(value = "/authors", params = "ids")
+    public ResponseEntity<?> getAuthorsByIds(@RequestParam("ids") List<String> ids) {
+        return lookupAuthors(ids);
+    }
+
+    //Same as the ids query, for lists too long for a URL
+    @PostMapping("/authors:lookup")
+    public ResponseEntity<?> lookupAuthors(@RequestBody List<String> ids) {
+        try {
+            return ResponseEntity.ok(libraryService.lookupAuthors(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (DataAccessException e) {
+            logger.error("Error occurred while looking up the authors: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error occurred while looking up the authors: " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error while looking up the authors: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred: " + e.getMessage());
+        }
+    }
+
+    //Streaming all the authors as newline delimited JSON
+    @GetMapping(value = "/authors", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllAuthors() {
+        return ndjsonResponse(libraryService::streamAllAuthors);
+    }
+
+    //Fetching the books of an author, one keyset page at a time
+    @GetMapping("/authors/{authorId}/books")
+    public ResponseEntity<?> getBooksByAuthor(@PathVariable("authorId") String authorId,
+                                              @RequestParam(value = "after", required = false) String after,
+                                              @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            Page<Book> page = libraryService.getBooksByAuthorPage(authorId, after, limit);
+            return pageResponse(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (BadSqlGrammarException e) {
+            logger.error("SQL syntax error {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("SQL syntax error occurred: {}" + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error while fetching the books of author {}: {}", authorId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred" + e.getMessage());
+        }
+    }
+
     //Creating a new author record
     @PostMapping("/authors")
     public ResponseEntity<String> createAuthor(@RequestBody Author author) {
@@ -82,20 +187,47 @@ public class LibraryController {
         }
     }
 
+    //Creating many authors in one request, with a result for every item
+    @PostMapping("/authors:batch")
+    public ResponseEntity<?> createAuthors(@RequestBody List<Author> authors) {
+        try {
+            List<BatchItemResult> results = libraryService.createAuthors(authors);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (DataAccessException e) {
+            logger.error("Error occurred while creating the authors batch: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error occurred while creating the authors: " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error while creating the authors batch: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred: " + e.getMessage());
+        }
+    }
+
     //Updating details of an existing author
     @PutMapping("/authors/{authorId}")
-    public ResponseEntity<String> updateAuthor(@PathVariable("authorId") String authorId, @RequestBody Author author) {
+    public ResponseEntity<String> updateAuthor(@PathVariable("authorId") String authorId, @RequestBody Author author,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            //Check if the author exists
-            Optional<Author> existingAuthor = libraryService.getAuthor(authorId);
-            if(existingAuthor.isEmpty())
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Author not found with ID: " + authorId);
-            boolean isUpdated = libraryService.updateAuthor(author);
+            //The update itself reports whether the author exists
+            author.setAuthorId(authorId);
+            boolean isUpdated;
+            if (ifMatch == null || ifMatch.trim().equals("*")) {
+                isUpdated = libraryService.updateAuthor(author);
+            } else {
+                RowVersion expected = RowVersion.fromEtag(authorId, ifMatch.trim());
+                if (expected == null) {
+                    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("If-Match does not match the author: " + ifMatch);
+                }
+                isUpdated = libraryService.updateAuthor(author, expected);
+            }
             if (isUpdated) {
                 return ResponseEntity.ok("Author Updated Successfully");
             } else {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Author Not Found or Update Failed");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Author not found with ID: " + authorId);
             }
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("If-Match does not match the author: " + ifMatch);
         } catch (BadSqlGrammarException e) {
             logger.error("SQL Syntax error {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("SQL syntax error occurred: {}" + e.getMessage());
@@ -133,13 +265,45 @@ public class LibraryController {
         }
     }
 
+    //Searching books by words or word beginnings of their title, best matches first
+    @GetMapping("/books/search")
+    public ResponseEntity<?> searchBooks(@RequestParam(value = "q", required = false) String query,
+                                         @RequestParam(value = "after", required = false) String after,
+                                         @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            Page<Book> page = libraryService.searchBooks(query, after, limit);
+            return pageResponse(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (BadSqlGrammarException e) {
+            logger.error("SQL syntax error {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("SQL syntax error occurred: {}" + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error while searching the books: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred" + e.getMessage());
+        }
+    }
+
     //Fetching details of a specific book by its id
     @GetMapping("/books/{bookId}")
-    public ResponseEntity<?> getBookDetails(@PathVariable("bookId") String bookId) {
+    public ResponseEntity<?> getBookDetails(@PathVariable("bookId") String bookId,
+                                            @RequestParam(value = "fields", required = false) String fields,
+                                            WebRequest webRequest) {
         try {
+            if (fields != null) {
+                Optional<Map<String, Object>> book = libraryService.getBookFields(bookId, fields);
+                return book.<ResponseEntity<?>>map(ResponseEntity::ok)
+                        .orElseGet(() -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            }
+            //A client that still has the current version gets a 304 without book_detail being read
+            if (isConditional(webRequest) && notModified(webRequest, libraryService.getBookVersion(bookId))) {
+                return null;
+            }
             Optional<Book> book = libraryService.getBook(bookId);
-            return book.map(ResponseEntity::ok)
+            return book.<ResponseEntity<?>>map(found -> versioned(found.rowVersion(), webRequest).body(found))
                     .orElseGet(() -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (BadSqlGrammarException e) {
             logger.error("SQL Syntax error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("SQL Syntax error occurred: {}" + e.getMessage());
@@ -149,12 +313,44 @@ public class LibraryController {
         }
     }
 
-    //Fetching the list of books
+    //Fetching the list of books, one keyset page at a time
     @GetMapping("/books")
-    public ResponseEntity<?> getAllBooks() {
+    public ResponseEntity<?> getAllBooks(@RequestParam(value = "after", required = false) String after,
+                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                         @RequestParam(value = "fields", required = false) String fields,
+                                         @RequestParam(value = "genre", required = false) String genre,
+                                         @RequestParam(value = "publishedFrom", required = false) String publishedFrom,
+                                         @RequestParam(value = "publishedTo", required = false) String publishedTo,
+                                         @RequestParam(value = "detail", required = false) String detail,
+                                         WebRequest webRequest) {
         try {
-            List<Book> books = libraryService.getAllBooks();
-            return ResponseEntity.ok(books);
+            //Filters on bookDetail attributes are evaluated by the database, not by the client
+            BookFilter filter = BookFilter.of(genre, publishedFrom, publishedTo, detail);
+            if (fields != null) {
+                return pageResponse(libraryService.getBooksPage(after, limit, filter, fields));
+            }
+            //The page ETag covers the ids and versions of its rows, so the versions alone can answer If-None-Match
+            if (isConditional(webRequest)) {
+                Page<RowVersion> versions = libraryService.getBooksPageVersions(after, limit, filter);
+                if (webRequest.checkNotModified(pageEtag(versions.getItems(), versions, webRequest),
+                        lastModifiedMillis(RowVersion.lastModified(versions.getItems())))) {
+                    return null;
+                }
+            }
+            Page<Book> page = libraryService.getBooksPage(after, limit, filter);
+            List<RowVersion> versions = page.getItems().stream().map(Book::rowVersion).toList();
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(pageEtag(versions, page, webRequest))
+                    .varyBy(HttpHeaders.ACCEPT);
+            Instant lastModified = RowVersion.lastModified(versions);
+            if (lastModified != null) {
+                response.lastModified(lastModified);
+            }
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (BadSqlGrammarException e) {
             logger.error("SQL syntax error {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("SQL syntax error occurred: {}" + e.getMessage());
@@ -163,6 +359,105 @@ public class LibraryController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred" + e.getMessage());
         }
     }
+
+    //Fetching many books by id in one request, e.g. ?ids=B101,B102; results follow the order of the ids
+    @GetMapping(value = "/books", params = "ids")
+    public ResponseEntity<?> getBooksByIds(@RequestParam("ids") List<String> ids) {
+        return lookupBooks(ids);
+    }
+
+    //Same as the ids query, for lists too long for a URL
+    @PostMapping("/books:lookup")
+    public ResponseEntity<?> lookupBooks(@RequestBody List<String> ids) {
+        try {
+            return ResponseEntity.ok(libraryService.lookupBooks(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (DataAccessException e) {
+            logger.error("Error occurred while looking up the books: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error occurred while looking up the books: " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error while looking up the books: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred: " + e.getMessage());
+        }
+    }
+
+    //Streaming all the books as newline delimited JSON
+    @GetMapping(value = "/books", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllBooks() {
+        return ndjsonResponse(libraryService::streamAllBooks);
+    }
+
+    //Only requests carrying validators are worth the extra version lookup
+    private static boolean isConditional(WebRequest webRequest) {
+        return webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null || webRequest.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    //True when the client's validators match the version, the 304 is then already written
+    private static boolean notModified(WebRequest webRequest, Optional<RowVersion> version) {
+        return version.isPresent() && webRequest.checkNotModified(version.get().etag(representation(webRequest)),
+                lastModifiedMillis(version.get().getUpdatedAt()));
+    }
+
+    private static ResponseEntity.BodyBuilder versioned(RowVersion version, WebRequest webRequest) {
+        //The same version is served as JSON, CBOR or Smile, each with an ETag of its own
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(version.etag(representation(webRequest)))
+                .varyBy(HttpHeaders.ACCEPT);
+        if (version.getUpdatedAt() != null) {
+            response.lastModified(version.getUpdatedAt());
+        }
+        return response;
+    }
+
+    private static String pageEtag(List<RowVersion> versions, Page<?> page, WebRequest webRequest) {
+        return RowVersion.pageEtag(versions, page.getNextCursor() != null, representation(webRequest));
+    }
+
+    //The binary format the response body is negotiated to, null for JSON: the Accept entry with the highest
+    //quality and specificity that names one of the formats, with wildcards answered in JSON
+    private static String representation(WebRequest webRequest) {
+        String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return null;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return null;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return "cbor";
+            }
+            if (mediaType.isCompatibleWith(SMILE)) {
+                return "smile";
+            }
+        }
+        return null;
+    }
+
+    private static long lastModifiedMillis(Instant lastModified) {
+        return lastModified == null ? -1 : lastModified.toEpochMilli();
+    }
+
+    //The page items stay the response body, the cursor for the next page travels in a header
+    private <T> ResponseEntity<List<T>> pageResponse(Page<T> page) {
+        //Negotiated to JSON, CBOR or Smile like the single rows
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
     //Creating a new book record
     @PostMapping("/books")
     public ResponseEntity<String> createBook(@RequestBody Book book) {
@@ -188,21 +483,48 @@ public class LibraryController {
         }
     }
 
+    //Creating many books in one request, with a result for every item
+    @PostMapping("/books:batch")
+    public ResponseEntity<?> createBooks(@RequestBody List<Book> books) {
+        try {
+            List<BatchItemResult> results = libraryService.createBooks(books);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (DataAccessException e) {
+            logger.error("Error occurred while creating the books batch: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error occurred while creating the books: " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error while creating the books batch: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred: " + e.getMessage());
+        }
+    }
+
     //Updating details of an existing book
     @PutMapping("/books/{bookId}")
-    public ResponseEntity<String> updateBook(@PathVariable("bookId") String bookId, @RequestBody Book book) {
+    public ResponseEntity<String> updateBook(@PathVariable("bookId") String bookId, @RequestBody Book book,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            //Check if the book exists
-            Optional<Book> existingBook = libraryService.getBook(bookId);
-            if(existingBook.isPresent())
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Book not found with ID: " + bookId);
+            //The update itself reports whether the book exists
             book.setBookId(bookId);
-            boolean isUpdated = libraryService.updateBook(book);
+            boolean isUpdated;
+            if (ifMatch == null || ifMatch.trim().equals("*")) {
+                isUpdated = libraryService.updateBook(book);
+            } else {
+                //Only the strong ETag of the version the client read can match
+                RowVersion expected = RowVersion.fromEtag(bookId, ifMatch.trim());
+                if (expected == null) {
+                    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("If-Match does not match the book: " + ifMatch);
+                }
+                isUpdated = libraryService.updateBook(book, expected);
+            }
             if(isUpdated) {
                 return ResponseEntity.ok("Book Updated Successfully");
             } else {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Book Not Found or Update Failed");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Book not found with ID: " + bookId);
             }
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("If-Match does not match the book: " + ifMatch);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
@@ -236,6 +558,51 @@ public class LibraryController {
         return libraryService.booksJoinAuthors();
     }
 
+    //Streaming the join between books and authors as newline delimited JSON
+    @GetMapping(value = "books-join-authors", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBooksJoinAuthors() {
+        return ndjsonResponse(libraryService::streamBooksJoinAuthors);
+    }
+
+    //Writing each row to the response as soon as it is read, flushing every NDJSON_FLUSH_INTERVAL rows
+    private <T> ResponseEntity<StreamingResponseBody> ndjsonResponse(Consumer<Consumer<T>> source) {
+        //The body is written on an async thread after ConsistencyTokenFilter has cleared the request's token,
+        //so it is taken along and applies to the streamed reads too
+        ConsistencyToken token = ReadRouting.currentToken();
+        StreamingResponseBody body = outputStream -> {
+            ReadRouting.setToken(token);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                int[] rowsWritten = {0};
+                source.accept(row -> {
+                    try {
+                        generator.writeObject(row);
+                        generator.writeRaw('\n');
+                        if (++rowsWritten[0] % NDJSON_FLUSH_INTERVAL == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                logger.debug("Streamed {} rows as NDJSON", rowsWritten[0]);
+            } catch (UncheckedIOException e) {
+                logger.error("Error while streaming the response: {}", e.getMessage());
+                throw e.getCause();
+            } finally {
+                ReadRouting.clearToken();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    //Hit, miss and eviction statistics of the book and author lookup cache
+    @GetMapping("/cache/stats")
+    public Map<String, Map<String, Object>> cacheStats() {
+        return libraryService.cacheStats();
+    }
+
     @DeleteMapping("/deleteBooksByAuthorName/{authorName}")
     public ResponseEntity<String> deleteBooksByAuthorName(@PathVariable String authorName) {
         try {
@@ -0,0 +1,72 @@
+package com.libraryManagement.jdbc;
+
+import com.libraryManagement.routing.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+//Wraps the application DataSource in a BulkheadDataSource when library.db-bulkhead.enabled is set,
+//which it is by default whenever request handling runs on virtual threads.
+//Behind replica routing every pool gets a bulkhead of its own, so each replica adds its connections to the limit
+//instead of sharing the primary's permits. Runs right after the routing post processor for that reason.
+@Component
+public class BulkheadDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+    private static final Logger logger = LoggerFactory.getLogger(BulkheadDataSourcePostProcessor.class);
+    //Hikari's default maximum pool size, for pools that do not tell theirs
+    private static final int DEFAULT_PERMITS = 10;
+
+    private final boolean enabled;
+    private final int permits;
+    private final Duration acquireTimeout;
+
+    public BulkheadDataSourcePostProcessor(@Value("${library.db-bulkhead.enabled:false}") boolean enabled,
+                                           @Value("${library.db-bulkhead.permits:0}") int permits,
+                                           @Value("${library.db-bulkhead.acquire-timeout:PT2S}") Duration acquireTimeout) {
+        this.enabled = enabled;
+        this.permits = permits;
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof DataSource dataSource) || bean instanceof BulkheadDataSource) {
+            return bean;
+        }
+        if (bean instanceof ReplicaRoutingDataSource routing) {
+            return routing.mapTargets(pool -> bulkhead(beanName, pool));
+        }
+        return bulkhead(beanName, dataSource);
+    }
+
+    private BulkheadDataSource bulkhead(String beanName, DataSource pool) {
+        int poolPermits = permitsFor(pool);
+        logger.info("Limiting {} ({}) to {} connections at a time, waiting at most {} for one", beanName,
+                poolName(pool), poolPermits, acquireTimeout);
+        return new BulkheadDataSource(pool, poolPermits, acquireTimeout);
+    }
+
+    //The configured permits, or with none configured the maximum size of the pool itself
+    int permitsFor(DataSource pool) {
+        if (permits > 0) {
+            return permits;
+        }
+        return pool instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : DEFAULT_PERMITS;
+    }
+
+    private static String poolName(DataSource pool) {
+        return pool instanceof HikariDataSource hikari && hikari.getPoolName() != null
+                ? hikari.getPoolName() : pool.getClass().getSimpleName();
+    }
+}
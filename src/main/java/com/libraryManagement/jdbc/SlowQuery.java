@@ -0,0 +1,64 @@
+package com.libraryManagement.jdbc;
+
+import java.time.Instant;
+import java.util.List;
+
+//One statement that went over the slow query threshold, as kept in the SlowQueryLog ring buffer
+public class SlowQuery {
+    private final Instant timestamp;
+    private final String sql;
+    private final List<String> params;
+    private final long rows;
+    private final int batchSize;
+    private final double elapsedMillis;
+    private final String caller;
+    //Filled in later, and only when an execution plan was captured
+    private volatile String plan;
+
+    public SlowQuery(Instant timestamp, String sql, List<String> params, long rows, int batchSize, double elapsedMillis,
+                     String caller) {
+        this.timestamp = timestamp;
+        this.sql = sql;
+        this.params = params;
+        this.rows = rows;
+        this.batchSize = batchSize;
+        this.elapsedMillis = elapsedMillis;
+        this.caller = caller;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<String> getParams() {
+        return params;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public String getCaller() {
+        return caller;
+    }
+
+    public String getPlan() {
+        return plan;
+    }
+
+    void setPlan(String plan) {
+        this.plan = plan;
+    }
+}
@@ -0,0 +1,279 @@
+package com.libraryManagement.jdbc;
+
+import com.libraryManagement.routing.ReplicaRoutingDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Locale;
+
+//Times every statement executed through the wrapped DataSource and hands the ones over the threshold to SlowQueryLog.
+//The time of a query is the time spent in execute plus the time spent in ResultSet.next, so fetching more rows
+//from the database counts while the time the caller spends on each row does not.
+//The entry is completed when the ResultSet or the statement is closed, once the row count is known.
+public class SlowQueryDataSource extends DelegatingDataSource {
+    private final SlowQueryLog slowQueryLog;
+    private volatile Boolean postgres;
+
+    public SlowQueryDataSource(DataSource target, SlowQueryLog slowQueryLog) {
+        super(target);
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) throws SQLException {
+        if (postgres == null) {
+            postgres = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgres");
+        }
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection, servedBy()));
+    }
+
+    //Where the connection just taken came from: behind a ReplicaRoutingDataSource that is the pool it routed to,
+    //so the plan of a replica read is captured on the replica rather than on the primary
+    private DataSource servedBy() {
+        DataSource dataSource = getTargetDataSource();
+        while (dataSource instanceof DelegatingDataSource delegating) {
+            dataSource = delegating.getTargetDataSource();
+        }
+        return dataSource instanceof ReplicaRoutingDataSource routing ? routing.lastTarget() : getTargetDataSource();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final DataSource servedBy;
+
+        ConnectionHandler(Connection target, DataSource servedBy) {
+            this.target = target;
+            this.servedBy = servedBy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SlowQueryDataSource.invoke(target, method, args);
+            switch (method.getName()) {
+                case "createStatement":
+                    return statement(Statement.class, (Statement) result, null);
+                case "prepareStatement":
+                    return statement(PreparedStatement.class, (Statement) result, (String) args[0]);
+                case "prepareCall":
+                    return statement(CallableStatement.class, (Statement) result, (String) args[0]);
+                default:
+                    return result;
+            }
+        }
+
+        private Object statement(Class<? extends Statement> type, Statement statement, String sql) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, new StatementHandler(statement, sql, servedBy));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+        private final DataSource servedBy;
+        private Object[] params = new Object[0];
+        private int paramCount;
+        private int batchSize;
+        private Execution pending;
+
+        StatementHandler(Statement target, String preparedSql, DataSource servedBy) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+            this.servedBy = servedBy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, name.equals("setNull") ? null : args[1]);
+                return SlowQueryDataSource.invoke(target, method, args);
+            }
+            switch (name) {
+                case "clearParameters":
+                    Arrays.fill(params, null);
+                    paramCount = 0;
+                    return SlowQueryDataSource.invoke(target, method, args);
+                case "addBatch":
+                    batchSize++;
+                    return SlowQueryDataSource.invoke(target, method, args);
+                case "executeQuery": {
+                    Execution execution = start(args);
+                    long start = System.nanoTime();
+                    ResultSet resultSet = (ResultSet) SlowQueryDataSource.invoke(target, method, args);
+                    execution.nanos += System.nanoTime() - start;
+                    pending = execution;
+                    return resultSet(resultSet, execution);
+                }
+                case "executeUpdate":
+                case "executeLargeUpdate": {
+                    Execution execution = start(args);
+                    long start = System.nanoTime();
+                    Object result = SlowQueryDataSource.invoke(target, method, args);
+                    execution.nanos += System.nanoTime() - start;
+                    execution.rows = ((Number) result).longValue();
+                    execution.complete();
+                    return result;
+                }
+                case "executeBatch":
+                case "executeLargeBatch": {
+                    Execution execution = start(args);
+                    execution.batchSize = batchSize;
+                    batchSize = 0;
+                    long start = System.nanoTime();
+                    Object result = SlowQueryDataSource.invoke(target, method, args);
+                    execution.nanos += System.nanoTime() - start;
+                    execution.rows = batchRows(result);
+                    execution.complete();
+                    return result;
+                }
+                case "execute": {
+                    Execution execution = start(args);
+                    long start = System.nanoTime();
+                    boolean hasResultSet = (Boolean) SlowQueryDataSource.invoke(target, method, args);
+                    execution.nanos += System.nanoTime() - start;
+                    if (hasResultSet) {
+                        pending = execution;
+                    } else {
+                        execution.rows = Math.max(target.getUpdateCount(), 0);
+                        execution.complete();
+                    }
+                    return hasResultSet;
+                }
+                case "getResultSet": {
+                    ResultSet resultSet = (ResultSet) SlowQueryDataSource.invoke(target, method, args);
+                    return resultSet == null || pending == null ? resultSet : resultSet(resultSet, pending);
+                }
+                case "close":
+                    if (pending != null) {
+                        pending.complete();
+                    }
+                    return SlowQueryDataSource.invoke(target, method, args);
+                default:
+                    return SlowQueryDataSource.invoke(target, method, args);
+            }
+        }
+
+        private void bind(int index, Object value) {
+            if (index > params.length) {
+                params = Arrays.copyOf(params, Math.max(index, params.length * 2));
+            }
+            params[index - 1] = value;
+            paramCount = Math.max(paramCount, index);
+        }
+
+        private Execution start(Object[] args) {
+            if (pending != null) {
+                pending.complete();
+                pending = null;
+            }
+            //Plain statements carry their SQL in the execute call
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+            return new Execution(sql, Arrays.copyOf(params, paramCount), servedBy);
+        }
+
+        private Object resultSet(ResultSet resultSet, Execution execution) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                    new ResultSetHandler(resultSet, execution));
+        }
+
+        private long batchRows(Object result) {
+            long rows = 0;
+            if (result instanceof int[] counts) {
+                for (int count : counts) {
+                    rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[] counts) {
+                for (long count : counts) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Execution execution;
+
+        ResultSetHandler(ResultSet target, Execution execution) {
+            this.target = target;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next": {
+                    long start = System.nanoTime();
+                    Object hasRow = SlowQueryDataSource.invoke(target, method, args);
+                    execution.nanos += System.nanoTime() - start;
+                    if ((Boolean) hasRow) {
+                        execution.rows++;
+                    }
+                    return hasRow;
+                }
+                case "close":
+                    execution.complete();
+                    return SlowQueryDataSource.invoke(target, method, args);
+                default:
+                    return SlowQueryDataSource.invoke(target, method, args);
+            }
+        }
+    }
+
+    //One execution of a statement, statements and result sets are confined to one thread at a time
+    private class Execution {
+        private final String sql;
+        private final Object[] params;
+        private final DataSource servedBy;
+        private long nanos;
+        private long rows;
+        private int batchSize;
+        private boolean completed;
+
+        Execution(String sql, Object[] params, DataSource servedBy) {
+            this.sql = sql;
+            this.params = params;
+            this.servedBy = servedBy;
+        }
+
+        void complete() {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            if (nanos >= slowQueryLog.getThresholdNanos()) {
+                slowQueryLog.record(sql, params, rows, batchSize, nanos, servedBy, Boolean.TRUE.equals(postgres));
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.libraryManagement.jdbc;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+//Wraps the application DataSource in a SlowQueryDataSource, so JdbcTemplate, the transaction manager
+//and the catalog import all go through it without knowing about it
+@Component
+public class SlowQueryDataSourcePostProcessor implements BeanPostProcessor {
+    //Looked up lazily, a post processor should not pull other beans in while it is being created
+    private final ObjectProvider<SlowQueryLog> slowQueryLog;
+
+    public SlowQueryDataSourcePostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof SlowQueryDataSource)) {
+            SlowQueryLog log = slowQueryLog.getObject();
+            if (log.isEnabled()) {
+                return new SlowQueryDataSource(dataSource, log);
+            }
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,188 @@
+package com.libraryManagement.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Receives every statement that took longer than library.slow-query.threshold, logs it with its bind values redacted
+//and keeps the most recent ones for the slowqueries actuator endpoint.
+//On PostgreSQL the execution plan can be captured as well; at most one plan per explain-interval is taken,
+//on a background thread, so a burst of slow statements does not double the load on the database.
+//The plan is taken on the database the statement ran on: the replica for a routed replica read, else the primary.
+@Component
+public class SlowQueryLog implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+    private static final String PACKAGE_PREFIX = "com.libraryManagement.";
+    private static final String JDBC_PACKAGE_PREFIX = "com.libraryManagement.jdbc.";
+
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final boolean explain;
+    private final long explainIntervalNanos;
+    private final int capacity;
+    private final ArrayDeque<SlowQuery> recent;
+    private final AtomicLong nextExplainAt = new AtomicLong(System.nanoTime());
+    private final ThreadPoolExecutor explainExecutor;
+
+    public SlowQueryLog(@Value("${library.slow-query.enabled:true}") boolean enabled,
+                        @Value("${library.slow-query.threshold:PT0.2S}") Duration threshold,
+                        @Value("${library.slow-query.explain:false}") boolean explain,
+                        @Value("${library.slow-query.explain-interval:PT30S}") Duration explainInterval,
+                        @Value("${library.slow-query.capacity:100}") int capacity) {
+        this.enabled = enabled;
+        this.thresholdNanos = threshold.toNanos();
+        this.explain = explain;
+        this.explainIntervalNanos = explainInterval.toNanos();
+        this.capacity = capacity;
+        this.recent = new ArrayDeque<>(capacity);
+        //One daemon thread and one waiting plan at most, anything beyond that is dropped
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), runnable -> {
+            Thread thread = new Thread(runnable, "slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getThresholdNanos() {
+        return thresholdNanos;
+    }
+
+    //Called by the statements of SlowQueryDataSource once a statement over the threshold has finished
+    void record(String sql, Object[] params, long rows, int batchSize, long elapsedNanos, DataSource target, boolean postgres) {
+        List<String> redacted = redact(params);
+        SlowQuery slowQuery = new SlowQuery(Instant.now(), sql, redacted, rows, batchSize, elapsedNanos / 1_000_000.0, caller());
+        logger.warn("slow_query elapsed_ms={} rows={} batch_size={} caller={} sql=\"{}\" params={}",
+                String.format(Locale.ROOT, "%.1f", slowQuery.getElapsedMillis()), rows, batchSize, slowQuery.getCaller(),
+                sql, redacted);
+        synchronized (recent) {
+            if (recent.size() == capacity) {
+                recent.removeFirst();
+            }
+            recent.addLast(slowQuery);
+        }
+        if (explain && postgres && batchSize == 0 && claimExplain()) {
+            try {
+                explainExecutor.execute(() -> explain(slowQuery, params, target));
+            } catch (RejectedExecutionException e) {
+                logger.debug("Skipping the execution plan of a slow query, the explain thread is stopped");
+            }
+        }
+    }
+
+    //Newest first
+    public List<SlowQuery> recent() {
+        synchronized (recent) {
+            List<SlowQuery> slowQueries = new ArrayList<>(recent);
+            Collections.reverse(slowQueries);
+            return slowQueries;
+        }
+    }
+
+    public void clear() {
+        synchronized (recent) {
+            recent.clear();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        explainExecutor.shutdownNow();
+    }
+
+    private boolean claimExplain() {
+        long now = System.nanoTime();
+        long next = nextExplainAt.get();
+        return now - next >= 0 && nextExplainAt.compareAndSet(next, now + explainIntervalNanos);
+    }
+
+    private void explain(SlowQuery slowQuery, Object[] params, DataSource target) {
+        String sql = slowQuery.getSql();
+        //ANALYZE runs the statement, so it is only used for reads
+        boolean read = sql.stripLeading().regionMatches(true, 0, "SELECT", 0, 6);
+        String explainSql = (read ? "EXPLAIN (ANALYZE, BUFFERS) " : "EXPLAIN ") + sql;
+        try (Connection connection = target.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(explainSql)) {
+                for (int i = 0; i < params.length; i++) {
+                    ps.setObject(i + 1, params[i]);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                }
+                slowQuery.setPlan(plan.toString());
+                logger.warn("slow_query_plan caller={} sql=\"{}\"\n{}", slowQuery.getCaller(), sql, plan);
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            logger.info("Could not capture the execution plan of a slow query: {}", e.getMessage());
+        }
+    }
+
+    //Numbers, booleans and nulls are kept, anything else is reduced to its type and length
+    static List<String> redact(Object[] params) {
+        List<String> redacted = new ArrayList<>(params.length);
+        for (Object param : params) {
+            if (param == null || param instanceof Number || param instanceof Boolean) {
+                redacted.add(String.valueOf(param));
+            } else if (param instanceof CharSequence text) {
+                redacted.add("?(" + param.getClass().getSimpleName() + "," + text.length() + ")");
+            } else {
+                redacted.add("?(" + param.getClass().getSimpleName() + ")");
+            }
+        }
+        return redacted;
+    }
+
+    //The innermost application frame outside this package, such as BookRepository.getAllBooks
+    private static String caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(PACKAGE_PREFIX)
+                        && !frame.getClassName().startsWith(JDBC_PACKAGE_PREFIX))
+                .findFirst()
+                .map(frame -> simpleName(frame.getClassName()) + "." + methodName(frame.getMethodName()))
+                .orElse("unknown"));
+    }
+
+    private static String simpleName(String className) {
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        int nested = simpleName.indexOf('$');
+        return nested < 0 ? simpleName : simpleName.substring(0, nested);
+    }
+
+    //lambda$streamAllBooks$3 is reported as streamAllBooks
+    private static String methodName(String methodName) {
+        if (methodName.startsWith("lambda$")) {
+            int end = methodName.indexOf('$', 7);
+            return end < 0 ? methodName.substring(7) : methodName.substring(7, end);
+        }
+        return methodName;
+    }
+}
@@ -0,0 +1,65 @@
+package com.libraryManagement.logging;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Lets at most a fixed number of messages per second through for one call site; the rest are counted and the
+//count is appended to the next message that gets through. Meant for log lines on paths that run on every request,
+//where a burst of traffic would otherwise turn into a burst of log I/O.
+//One instance per call site, held in a static field next to the logger.
+public final class RateLimitedLog {
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final Logger logger;
+    private final int permitsPerSecond;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger used = new AtomicInteger();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    private RateLimitedLog(Logger logger, int permitsPerSecond) {
+        this.logger = logger;
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public static RateLimitedLog perSecond(Logger logger, int permitsPerSecond) {
+        return new RateLimitedLog(logger, permitsPerSecond);
+    }
+
+    //Fixed arity overloads, so a suppressed call allocates no varargs array
+    public void info(String format, Object arg) {
+        if (logger.isInfoEnabled() && tryAcquire()) {
+            logger.info(withSuppressed(format), arg, suppressed.getAndSet(0));
+        }
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        if (logger.isInfoEnabled() && tryAcquire()) {
+            logger.info(withSuppressed(format), arg1, arg2, suppressed.getAndSet(0));
+        }
+    }
+
+    public void warn(String format, Object arg) {
+        if (logger.isWarnEnabled() && tryAcquire()) {
+            logger.warn(withSuppressed(format), arg, suppressed.getAndSet(0));
+        }
+    }
+
+    private boolean tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            used.set(0);
+        }
+        if (used.incrementAndGet() <= permitsPerSecond) {
+            return true;
+        }
+        suppressed.incrementAndGet();
+        return false;
+    }
+
+    private static String withSuppressed(String format) {
+        return format + " (suppressed since last: {})";
+    }
+}
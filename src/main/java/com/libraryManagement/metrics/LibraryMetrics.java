@@ -0,0 +1,92 @@
+package com.libraryManagement.metrics;
+
+import com.libraryManagement.model.Book;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Rows fetched and bookDetail bytes read per repository query, as histograms tagged with the query name.
+//The latency of the same queries comes from @Timed on the repositories, pool gauges from HikariCP
+//and per endpoint outcomes from http.server.requests.
+@Component
+public class LibraryMetrics {
+    //Used where no registry is wired in, such as repositories built directly in unit tests
+    public static final LibraryMetrics NOOP = new LibraryMetrics(null);
+
+    private final MeterRegistry meterRegistry;
+    //Meters are looked up once per query name, not on every call
+    private final Map<String, DistributionSummary> rows = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> payloads = new ConcurrentHashMap<>();
+
+    public LibraryMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordRows(String query, long rowCount) {
+        if (meterRegistry == null) {
+            return;
+        }
+        rows.computeIfAbsent(query, name -> DistributionSummary.builder("library.repository.rows")
+                .description("Rows fetched per repository query")
+                .tag("query", name)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(100_000.0)
+                .register(meterRegistry)).record(rowCount);
+    }
+
+    public void recordPayload(String query, long bytes) {
+        if (meterRegistry == null) {
+            return;
+        }
+        payloads.computeIfAbsent(query, name -> DistributionSummary.builder("library.repository.payload")
+                .description("bookDetail JSON bytes (UTF-8) read per repository query")
+                .baseUnit("bytes")
+                .tag("query", name)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(64.0)
+                .maximumExpectedValue(64.0 * 1024 * 1024)
+                .register(meterRegistry)).record(bytes);
+    }
+
+    //Recording the rows and bookDetail size of a list of books, returning the list unchanged
+    public List<Book> recordBooks(String query, List<Book> books) {
+        if (meterRegistry != null) {
+            recordRows(query, books.size());
+            long bytes = 0;
+            for (Book book : books) {
+                bytes += detailLength(book);
+            }
+            recordPayload(query, bytes);
+        }
+        return books;
+    }
+
+    //The UTF-8 size of the bookDetail text, counted without encoding it
+    public static long detailLength(Book book) {
+        String bookDetailJson = book.getBookDetailJson();
+        return bookDetailJson == null ? 0 : utf8Length(bookDetailJson);
+    }
+
+    static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
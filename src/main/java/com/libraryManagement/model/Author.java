@@ -1,9 +1,16 @@
 package com.libraryManagement.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
 public class Author {
 
     private String authorId;
     private String authorName;
+    //Set by every write of the row; they make the ETag and are not part of the JSON
+    private long version;
+    private Instant updatedAt;
 
     public Author() {
     }
@@ -28,4 +35,26 @@ public class Author {
     public void setAuthorName(String authorName) {
         this.authorName = authorName;
     }
+
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    @JsonIgnore
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public RowVersion rowVersion() {
+        return new RowVersion(authorId, version, updatedAt);
+    }
 }
@@ -0,0 +1,49 @@
+package com.libraryManagement.model;
+
+public class BatchItemResult {
+
+    public enum Status {
+        CREATED,
+        CONFLICT,
+        INVALID,
+        //The driver ran the insert but did not say whether ON CONFLICT skipped it
+        UNKNOWN
+    }
+
+    private String id;
+    private Status status;
+    private String message;
+
+    public BatchItemResult() {
+    }
+
+    public BatchItemResult(String id, Status status, String message) {
+        this.id = id;
+        this.status = status;
+        this.message = message;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -1,12 +1,33 @@
 package com.libraryManagement.model;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.libraryManagement.codec.RawJsonSerializer;
 
+import java.time.Instant;
+
+//The setters build a book, from a row or a request body; a book handed to the cache is not changed afterwards
 public class Book {
 
+    private static final ObjectMapper DETAIL_READER = new ObjectMapper();
+
     private String bookId;
     private String bookAuthor;
     private String bookTitle;
+    //Derived from bookAuthor when the book is written, null when no author carries that name
+    private String authorId;
     private JsonNode bookDetail;
+    //The book_detail text as stored in the database, parsed only when somebody asks for the tree
+    private String bookDetailJson;
+    //The tree parsed from bookDetailJson. Books are shared between request threads through the cache and the
+    //coalesced reads, so the getter publishes it through a volatile field and never changes any other field
+    private volatile JsonNode parsedDetail;
+    //Set by every write of the row; they make the ETag and are not part of the JSON
+    private long version;
+    private Instant updatedAt;
 
     public Book () {
     }
@@ -42,12 +63,76 @@ public class Book {
         this.bookTitle = bookTitle;
     }
 
+    public String getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(String authorId) {
+        this.authorId = authorId;
+    }
+
+    @JsonIgnore
     public JsonNode getBookDetail() {
-        return bookDetail;
+        if (bookDetail != null || bookDetailJson == null) {
+            return bookDetail;
+        }
+        JsonNode parsed = parsedDetail;
+        if (parsed == null) {
+            //Two threads may both parse the same text, either tree is the same
+            try {
+                parsed = DETAIL_READER.readTree(bookDetailJson);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Error while reading book_detail from JSON", e);
+            }
+            parsedDetail = parsed;
+        }
+        return parsed;
     }
 
+    @JsonProperty("bookDetail")
     public void setBookDetail(JsonNode bookDetail) {
         this.bookDetail = bookDetail;
+        this.bookDetailJson = null;
+        this.parsedDetail = null;
+    }
+
+    //Written into JSON responses as it is, so a book read from the database is never parsed and re-serialized;
+    //CBOR and Smile responses get its tokens copied over
+    @JsonProperty("bookDetail")
+    @JsonSerialize(using = RawJsonSerializer.class)
+    public String getBookDetailJson() {
+        if (bookDetailJson == null && bookDetail != null) {
+            return bookDetail.toString();
+        }
+        return bookDetailJson;
+    }
+
+    //Carrying book_detail text that the database has already validated as JSON
+    public void setBookDetailJson(String bookDetailJson) {
+        this.bookDetailJson = bookDetailJson;
+        this.bookDetail = null;
+        this.parsedDetail = null;
     }
 
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    @JsonIgnore
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public RowVersion rowVersion() {
+        return new RowVersion(bookId, version, updatedAt);
+    }
 }
@@ -0,0 +1,55 @@
+package com.libraryManagement.model;
+
+public class ImportResult {
+
+    private long rowsRead;
+    private long rowsRejected;
+    private long rowsMerged;
+    private long elapsedMillis;
+
+    public ImportResult() {
+    }
+
+    public ImportResult(long rowsRead, long rowsRejected, long rowsMerged, long elapsedMillis) {
+        this.rowsRead = rowsRead;
+        this.rowsRejected = rowsRejected;
+        this.rowsMerged = rowsMerged;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public void setRowsRejected(long rowsRejected) {
+        this.rowsRejected = rowsRejected;
+    }
+
+    public long getRowsMerged() {
+        return rowsMerged;
+    }
+
+    public void setRowsMerged(long rowsMerged) {
+        this.rowsMerged = rowsMerged;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getRowsPerSecond() {
+        return elapsedMillis == 0 ? rowsRead : rowsRead * 1000 / elapsedMillis;
+    }
+}
@@ -0,0 +1,46 @@
+package com.libraryManagement.model;
+
+public class LookupResult<T> {
+
+    public enum Status {
+        FOUND,
+        NOT_FOUND
+    }
+
+    private String id;
+    private Status status;
+    private T item;
+
+    public LookupResult() {
+    }
+
+    public LookupResult(String id, Status status, T item) {
+        this.id = id;
+        this.status = status;
+        this.item = item;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    public void setItem(T item) {
+        this.item = item;
+    }
+}
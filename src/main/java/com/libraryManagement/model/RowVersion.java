@@ -0,0 +1,92 @@
+package com.libraryManagement.model;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+//The version and updated_at of one book or author row, which every write changes.
+//Its strong ETag is "<version>-<updated_at in microseconds>"; the time keeps a row that was deleted and
+//created again from repeating the ETags of the old row. The CBOR and Smile representations carry the
+//format as a suffix, "<version>-<micros>-cbor", since a strong ETag belongs to exactly one byte sequence.
+public class RowVersion {
+    private final String id;
+    private final long version;
+    private final Instant updatedAt;
+
+    public RowVersion(String id, long version, Instant updatedAt) {
+        this.id = id;
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public String etag() {
+        return etag(null);
+    }
+
+    //The ETag of the representation in the given format, null for JSON
+    public String etag(String format) {
+        return quote(version + "-" + micros(updatedAt), format);
+    }
+
+    //The version and time an If-Match ETag stands for, null when it is not a strong ETag of this form
+    public static RowVersion fromEtag(String id, String etag) {
+        if (etag == null || etag.length() < 2 || !etag.startsWith("\"") || !etag.endsWith("\"")) {
+            return null;
+        }
+        String value = etag.substring(1, etag.length() - 1);
+        int separator = value.indexOf('-');
+        //Any representation of the version stands for it, whatever format the client read it in
+        int format = value.indexOf('-', separator + 1);
+        try {
+            long version = Long.parseLong(value.substring(0, separator));
+            long micros = Long.parseLong(format < 0 ? value.substring(separator + 1) : value.substring(separator + 1, format));
+            return new RowVersion(id, version, Instant.EPOCH.plus(micros, ChronoUnit.MICROS));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    //One ETag for a page of rows: a digest of their ids and versions, and of whether another page follows
+    public static String pageEtag(List<RowVersion> rows, boolean more, String format) {
+        StringBuilder versions = new StringBuilder(rows.size() * 32);
+        for (RowVersion row : rows) {
+            versions.append(row.id).append(':').append(row.version).append('-').append(micros(row.updatedAt)).append('\n');
+        }
+        versions.append(more ? '+' : '.');
+        return quote(DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8)), format);
+    }
+
+    //The newest updated_at of the rows, null for no rows
+    public static Instant lastModified(List<RowVersion> rows) {
+        Instant lastModified = null;
+        for (RowVersion row : rows) {
+            if (row.updatedAt != null && (lastModified == null || row.updatedAt.isAfter(lastModified))) {
+                lastModified = row.updatedAt;
+            }
+        }
+        return lastModified;
+    }
+
+    private static String quote(String value, String format) {
+        return "\"" + (format == null ? value : value + "-" + format) + "\"";
+    }
+
+    private static long micros(Instant instant) {
+        return instant == null ? 0 : ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+}
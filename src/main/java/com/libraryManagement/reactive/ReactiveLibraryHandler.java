@@ -0,0 +1,75 @@
+package com.libraryManagement.reactive;
+
+import com.libraryManagement.model.Author;
+import com.libraryManagement.model.Book;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+//The read endpoints of LibraryController on the reactive stack: same paths, same bodies and the same status codes,
+//so a client can move its reads to the reactive port without other changes.
+//The lists are not paged here, they stream every row with backpressure, as a JSON array or as
+//newline delimited JSON when the client accepts application/x-ndjson.
+@Component
+@ConditionalOnProperty(name = "library.reactive.enabled", havingValue = "true")
+public class ReactiveLibraryHandler {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveLibraryHandler.class);
+
+    private final ReactiveLibraryRepository repository;
+
+    public ReactiveLibraryHandler(ReactiveLibraryRepository repository) {
+        this.repository = repository;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return route(GET("/library/books/{bookId}"), this::getBook)
+                .andRoute(GET("/library/books"), this::getAllBooks)
+                .andRoute(GET("/library/authors/{authorId}"), this::getAuthor)
+                .andRoute(GET("/library/authors"), this::getAllAuthors);
+    }
+
+    public Mono<ServerResponse> getBook(ServerRequest request) {
+        return lookup(repository.getBook(request.pathVariable("bookId")), "book");
+    }
+
+    public Mono<ServerResponse> getAuthor(ServerRequest request) {
+        return lookup(repository.getAuthor(request.pathVariable("authorId")), "author");
+    }
+
+    public Mono<ServerResponse> getAllBooks(ServerRequest request) {
+        return list(request, repository.streamAllBooks(), Book.class, "books");
+    }
+
+    public Mono<ServerResponse> getAllAuthors(ServerRequest request) {
+        return list(request, repository.streamAllAuthors(), Author.class, "authors");
+    }
+
+    //A missing row answers 500 with an empty body, like LibraryController does
+    private static <T> Mono<ServerResponse> lookup(Mono<T> row, String what) {
+        return row.flatMap(found -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(found))
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).build()))
+                .onErrorResume(e -> {
+                    logger.error("Error fetching the {}: {}", what, e.getMessage());
+                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).bodyValue("An error occurred" + e.getMessage());
+                });
+    }
+
+    //Once the first row is written the status is sent, a later failure can only cut the response short
+    private static <T> Mono<ServerResponse> list(ServerRequest request, Flux<T> rows, Class<T> type, String what) {
+        MediaType mediaType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+        Flux<T> logged = rows.doOnError(e -> logger.error("Error while streaming the {}: {}", what, e.getMessage()));
+        return ServerResponse.ok().contentType(mediaType).body(logged, type);
+    }
+}
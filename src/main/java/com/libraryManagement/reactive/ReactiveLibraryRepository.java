@@ -0,0 +1,114 @@
+package com.libraryManagement.reactive;
+
+import com.libraryManagement.model.Author;
+import com.libraryManagement.model.Book;
+import com.libraryManagement.repository.AuthorRepository;
+import com.libraryManagement.repository.BookRepository;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//Non-blocking reads of books and authors through R2DBC, running the same statements as the JDBC repositories.
+//The lists are cursored fetches of STREAM_FETCH_SIZE rows; the next batch is only requested when the
+//subscriber has asked for more rows, so a slow client holds back the database instead of filling the heap.
+@Repository
+@ConditionalOnProperty(name = "library.reactive.enabled", havingValue = "true")
+public class ReactiveLibraryRepository implements DisposableBean {
+    private static final String BOOK_BY_ID_SQL = bindMarkers(BookRepository.BOOK_BY_ID_SQL);
+    private static final String ALL_BOOKS_SQL = bindMarkers(BookRepository.ALL_BOOKS_SQL);
+    private static final String AUTHOR_BY_ID_SQL = bindMarkers(AuthorRepository.AUTHOR_BY_ID_SQL);
+    private static final String ALL_AUTHORS_SQL = bindMarkers(AuthorRepository.ALL_AUTHORS_SQL);
+
+    private final ConnectionPool connectionPool;
+    private final DatabaseClient databaseClient;
+
+    //The pool stays private to this class; a ConnectionFactory bean would make Spring Boot skip the JDBC DataSource
+    public ReactiveLibraryRepository(@Value("${library.reactive.r2dbc-url}") String url,
+                                     @Value("${library.reactive.username}") String username,
+                                     @Value("${library.reactive.password}") String password,
+                                     @Value("${library.reactive.pool-size:10}") int poolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .maxSize(poolSize)
+                .build());
+        this.databaseClient = DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+
+    public Mono<Book> getBook(String bookId) {
+        return databaseClient.sql(BOOK_BY_ID_SQL)
+                .bind(0, bookId)
+                .map(ReactiveLibraryRepository::book)
+                .one();
+    }
+
+    public Flux<Book> streamAllBooks() {
+        return databaseClient.sql(ALL_BOOKS_SQL)
+                .filter((statement, next) -> next.execute(statement.fetchSize(BookRepository.STREAM_FETCH_SIZE)))
+                .map(ReactiveLibraryRepository::book)
+                .all();
+    }
+
+    public Mono<Author> getAuthor(String authorId) {
+        return databaseClient.sql(AUTHOR_BY_ID_SQL)
+                .bind(0, authorId)
+                .map(ReactiveLibraryRepository::author)
+                .one();
+    }
+
+    public Flux<Author> streamAllAuthors() {
+        return databaseClient.sql(ALL_AUTHORS_SQL)
+                .filter((statement, next) -> next.execute(statement.fetchSize(AuthorRepository.STREAM_FETCH_SIZE)))
+                .map(ReactiveLibraryRepository::author)
+                .all();
+    }
+
+    private static Book book(Readable row) {
+        Book book = new Book();
+        book.setBookId(row.get("book_id", String.class));
+        book.setBookAuthor(row.get("book_author", String.class));
+        book.setBookTitle(row.get("book_title", String.class));
+        book.setAuthorId(row.get("author_id", String.class));
+        //The jsonb text is kept as it is, like BookRepository does
+        book.setBookDetailJson(row.get("book_detail", String.class));
+        return book;
+    }
+
+    private static Author author(Readable row) {
+        Author author = new Author();
+        author.setAuthorId(row.get("author_id", String.class));
+        author.setAuthorName(row.get("author_name", String.class));
+        return author;
+    }
+
+    //R2DBC drivers take $1, $2, ... instead of JDBC's ?; only for statements without ? inside literals or operators
+    static String bindMarkers(String jdbcSql) {
+        StringBuilder sql = new StringBuilder(jdbcSql.length() + 8);
+        int index = 0;
+        for (int i = 0; i < jdbcSql.length(); i++) {
+            char c = jdbcSql.charAt(i);
+            if (c == '?') {
+                sql.append('$').append(++index);
+            } else {
+                sql.append(c);
+            }
+        }
+        return sql.toString();
+    }
+}
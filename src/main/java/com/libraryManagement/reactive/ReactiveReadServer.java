@@ -0,0 +1,72 @@
+package com.libraryManagement.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+//Serves the reactive read API on its own Netty port next to the Tomcat/MVC application.
+//Netty runs a small, fixed set of event loop threads, and no request holds one while it waits on the database.
+@Component
+@ConditionalOnProperty(name = "library.reactive.enabled", havingValue = "true")
+public class ReactiveReadServer implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveReadServer.class);
+
+    private final ReactiveLibraryHandler handler;
+    private final ObjectMapper objectMapper;
+    private final int port;
+    private volatile WebServer webServer;
+
+    public ReactiveReadServer(ReactiveLibraryHandler handler, ObjectMapper objectMapper,
+                              @Value("${library.reactive.port:8081}") int port) {
+        this.handler = handler;
+        this.objectMapper = objectMapper;
+        this.port = port;
+    }
+
+    @Override
+    public void start() {
+        //The application's ObjectMapper, so books serialize exactly as they do on the MVC endpoints
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        HttpHandler httpHandler = RouterFunctions.toHttpHandler(handler.routes(), strategies);
+        WebServer server = new NettyReactiveWebServerFactory(port).getWebServer(httpHandler);
+        server.start();
+        webServer = server;
+        logger.info("Reactive read API listening on port {}", server.getPort());
+    }
+
+    @Override
+    public void stop() {
+        WebServer server = webServer;
+        if (server != null) {
+            server.stop();
+            webServer = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return webServer != null;
+    }
+
+    //The port actually bound, which differs from the configured one when that is 0
+    public int getPort() {
+        WebServer server = webServer;
+        return server != null ? server.getPort() : -1;
+    }
+}
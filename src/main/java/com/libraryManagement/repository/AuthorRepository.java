@@ -1,6 +1,10 @@
 package com.libraryManagement.repository;
 
+import com.libraryManagement.logging.RateLimitedLog;
+import com.libraryManagement.metrics.LibraryMetrics;
 import com.libraryManagement.model.Author;
+import com.libraryManagement.model.RowVersion;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,62 +12,193 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
+@Timed(value = "library.repository", description = "Latency of the repository methods", histogram = true)
 public class AuthorRepository {
     private final JdbcTemplate jdbcTemplate;
+    private final LibraryMetrics metrics;
     private static final Logger logger = LoggerFactory.getLogger(AuthorRepository.class);
+    public static final int STREAM_FETCH_SIZE = 500;
+    //Also run by the reactive read path, see ReactiveLibraryRepository
+    public static final String AUTHOR_BY_ID_SQL = "SELECT * FROM authors WHERE author_id = ?";
+    public static final String ALL_AUTHORS_SQL = "SELECT * FROM authors ORDER BY author_id";
+    public static final int INSERT_BATCH_SIZE = 500;
+    //Per call site limits for the INFO and WARN lines of the paths that run on every request
+    private static final RateLimitedLog AUTHOR_NOT_FOUND_LOG = RateLimitedLog.perSecond(logger, 10);
+    private static final RateLimitedLog ALL_AUTHORS_LOG = RateLimitedLog.perSecond(logger, 1);
+    private static final RateLimitedLog AUTHORS_PAGE_LOG = RateLimitedLog.perSecond(logger, 10);
 
     @Autowired
-    public AuthorRepository (JdbcTemplate jdbcTemplate) {
+    public AuthorRepository (JdbcTemplate jdbcTemplate, LibraryMetrics metrics) {
         this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+    }
+
+    //Without metrics, for repositories built directly in unit tests
+    public AuthorRepository (JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, LibraryMetrics.NOOP);
     }
 
-    //Creating and inserting an authors detail into authors table
-    public void createAuthor(Author author) {
-        String sql = "INSERT INTO authors (author_id, author_name) VALUES (?, ?)";
-        jdbcTemplate.update(sql, author.getAuthorId(), author.getAuthorName());
+    //Creating and inserting an authors detail into authors table, false when the author id is already taken
+    public boolean createAuthor(Author author) {
+        String sql = "INSERT INTO authors (author_id, author_name) VALUES (?, ?) ON CONFLICT DO NOTHING";
+        return jdbcTemplate.update(sql, author.getAuthorId(), author.getAuthorName()) > 0;
+    }
+
+    //Inserting many authors as JDBC batches, returning the affected row count of every author in order
+    public int[] createAuthors(List<Author> authors) {
+        String sql = "INSERT INTO authors (author_id, author_name) VALUES (?, ?) ON CONFLICT DO NOTHING";
+        logger.info("Inserting {} authors in batches of {}", authors.size(), INSERT_BATCH_SIZE);
+        int[][] batchCounts = jdbcTemplate.batchUpdate(sql, authors, INSERT_BATCH_SIZE, (ps, author) -> {
+            ps.setString(1, author.getAuthorId());
+            ps.setString(2, author.getAuthorName());
+        });
+        int[] counts = new int[authors.size()];
+        int index = 0;
+        for (int[] batch : batchCounts) {
+            for (int count : batch) {
+                counts[index++] = count;
+            }
+        }
+        return counts;
+    }
+
+    //Finding which of the given author IDs are already present, with a single query
+    public Set<String> findExistingAuthorIds(Collection<String> authorIds) {
+        if (authorIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(authorIds.size(), "?"));
+        String sql = "SELECT author_id FROM authors WHERE author_id IN (" + placeholders + ")";
+        return new HashSet<>(jdbcTemplate.queryForList(sql, String.class, authorIds.toArray()));
     }
 
     //Retrieving an author's detail by its id
     public Optional<Author> getAuthor(String authorId) {
-        String sql = "SELECT * FROM authors WHERE author_id = ?";
-        logger.info("Executing SQL query to fetch the author with ID: {}", authorId);
-        List<Author> authors = jdbcTemplate.query(sql, new AuthorRowMapper(), authorId);
-        logger.debug("SQL query executed successfully. Number of authors retrieved: {}", authors.size());
+        logger.debug("Executing SQL query to fetch the author with ID: {}", authorId);
+        List<Author> authors = jdbcTemplate.query(AUTHOR_BY_ID_SQL, new AuthorRowMapper(), authorId);
         if (authors.isEmpty()) {
-            logger.warn("No author found with Id: {}", authorId);
+            AUTHOR_NOT_FOUND_LOG.warn("No author found with Id: {}", authorId);
             return Optional.empty();
         } else {
             Author retrievedAuthor = authors.get(0);
-            logger.info("Author retrieved successfully");
+            logger.debug("Author retrieved successfully");
             return Optional.of(retrievedAuthor);
         }
     }
 
+    //Retrieving only the version of an author
+    public Optional<RowVersion> getAuthorVersion(String authorId) {
+        String sql = "SELECT author_id, version, updated_at FROM authors WHERE author_id = ?";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new RowVersion(rs.getString("author_id"), rs.getLong("version"),
+                rs.getObject("updated_at", OffsetDateTime.class).toInstant()), authorId).stream().findFirst();
+    }
+
+    //Retrieving the authors with the given IDs with one array query, in no particular order; missing IDs are left out
+    public List<Author> getAuthorsByIds(Collection<String> authorIds) {
+        if (authorIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        logger.debug("Fetching {} authors by ID", authorIds.size());
+        String sql = "SELECT * FROM authors WHERE author_id = ANY(?)";
+        List<Author> authors = jdbcTemplate.query(sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", authorIds.toArray())), new AuthorRowMapper());
+        metrics.recordRows("getAuthorsByIds", authors.size());
+        return authors;
+    }
+
     //Retrieving all the authors present in the database
     public List<Author> getAllAuthor() {
-        String sql = "SELECT * FROM authors ORDER BY author_id";
-        logger.info("Fetching all authors from the database");
-        List<Author> authors = jdbcTemplate.query(sql, new AuthorRowMapper());
-        logger.info("Successfully retrieved {} authors", authors.size());
+        logger.debug("Fetching all authors from the database");
+        List<Author> authors = jdbcTemplate.query(ALL_AUTHORS_SQL, new AuthorRowMapper());
+        ALL_AUTHORS_LOG.info("Successfully retrieved {} authors", authors.size());
+        metrics.recordRows("getAllAuthor", authors.size());
+        return authors;
+    }
+
+    //Retrieving one page of authors ordered by author_id, starting after the given key
+    public List<Author> getAuthorsPage(String afterAuthorId, int limit) {
+        AUTHORS_PAGE_LOG.info("Fetching a page of {} authors after ID: {}", limit, afterAuthorId);
+        List<Author> authors;
+        if (afterAuthorId == null) {
+            String sql = "SELECT * FROM authors ORDER BY author_id LIMIT ?";
+            authors = jdbcTemplate.query(sql, new AuthorRowMapper(), limit);
+        } else {
+            String sql = "SELECT * FROM authors WHERE author_id > ? ORDER BY author_id LIMIT ?";
+            authors = jdbcTemplate.query(sql, new AuthorRowMapper(), afterAuthorId, limit);
+        }
+        logger.debug("Retrieved {} authors for the page", authors.size());
+        metrics.recordRows("getAuthorsPage", authors.size());
         return authors;
     }
 
-    //Updating the author
-    public void updateAuthor(Author author) {
-        String sql = "UPDATE authors SET author_name = ? WHERE author_id = ?";
-        jdbcTemplate.update(sql, author.getAuthorName(), author.getAuthorId());
+    //Retrieving only the projected fields of an author by its id
+    public Optional<Map<String, Object>> getAuthorFields(String authorId, FieldProjection projection) {
+        String sql = "SELECT " + projection.selectList() + " FROM authors WHERE author_id = ?";
+        logger.debug("Fetching fields of the author with ID: {}", authorId);
+        List<Map<String, Object>> authors = jdbcTemplate.query(sql, projection::mapRow, projection.params(authorId));
+        return authors.stream().findFirst();
+    }
+
+    //Retrieving only the projected fields of one page of authors ordered by author_id
+    public List<Map<String, Object>> getAuthorsPage(String afterAuthorId, int limit, FieldProjection projection) {
+        AUTHORS_PAGE_LOG.info("Fetching fields of a page of {} authors after ID: {}", limit, afterAuthorId);
+        if (afterAuthorId == null) {
+            String sql = "SELECT " + projection.selectList() + " FROM authors ORDER BY author_id LIMIT ?";
+            return jdbcTemplate.query(sql, projection::mapRow, projection.params(limit));
+        }
+        String sql = "SELECT " + projection.selectList() + " FROM authors WHERE author_id > ? ORDER BY author_id LIMIT ?";
+        return jdbcTemplate.query(sql, projection::mapRow, projection.params(afterAuthorId, limit));
+    }
+
+    //Streaming every author row by row from the JDBC cursor, only STREAM_FETCH_SIZE rows are held at a time
+    public void streamAllAuthors(Consumer<Author> consumer) {
+        logger.info("Streaming all authors from the database");
+        AuthorRowMapper rowMapper = new AuthorRowMapper();
+        long[] rows = new long[1];
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(ALL_AUTHORS_SQL);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            rows[0]++;
+            consumer.accept(rowMapper.mapRow(rs, rs.getRow()));
+        });
+        metrics.recordRows("streamAllAuthors", rows[0]);
+    }
+
+    //Updating the author, false when no author has the given id
+    public boolean updateAuthor(Author author) {
+        String sql = "UPDATE authors SET author_name = ?, version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE author_id = ?";
+        return jdbcTemplate.update(sql, author.getAuthorName(), author.getAuthorId()) > 0;
+    }
+
+    //Updating the author only while it still has the expected version, false when it has another one or is gone
+    public boolean updateAuthor(Author author, RowVersion expected) {
+        String sql = "UPDATE authors SET author_name = ?, version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE author_id = ? AND version = ? AND updated_at = ?";
+        return jdbcTemplate.update(sql, author.getAuthorName(), author.getAuthorId(), expected.getVersion(),
+                OffsetDateTime.ofInstant(expected.getUpdatedAt(), ZoneOffset.UTC)) > 0;
     }
 
-    //Deleting the author
-    public void deleteAuthor(String authorId) {
+    //Deleting the author, false when no author has the given id
+    public boolean deleteAuthor(String authorId) {
         String sql = "DELETE FROM authors WHERE author_id = ?";
-        jdbcTemplate.update(sql, authorId);
+        return jdbcTemplate.update(sql, authorId) > 0;
     }
 
     private static class AuthorRowMapper implements RowMapper<Author> {
@@ -72,6 +207,8 @@ public class AuthorRepository {
             Author author = new Author();
             author.setAuthorId(rs.getString("author_id"));
             author.setAuthorName(rs.getString("author_name"));
+            author.setVersion(rs.getLong("version"));
+            author.setUpdatedAt(rs.getObject("updated_at", OffsetDateTime.class).toInstant());
             return author;
         }
     }
@@ -0,0 +1,80 @@
+package com.libraryManagement.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+//Filters on bookDetail attributes, pushed down as predicates that the indexes in schema-postgresql.sql can serve:
+//genre and any containment document become one book_detail @> ?::jsonb (GIN index),
+//the publishing year range compares book_detail->>'publishing year' (expression index).
+public class BookFilter {
+    public static final BookFilter NONE = new BookFilter(null, null, null);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Pattern YEAR = Pattern.compile("\\d{4}");
+
+    private final ObjectNode containment;
+    private final String publishedFrom;
+    private final String publishedTo;
+
+    private BookFilter(ObjectNode containment, String publishedFrom, String publishedTo) {
+        this.containment = containment;
+        this.publishedFrom = publishedFrom;
+        this.publishedTo = publishedTo;
+    }
+
+    public static BookFilter of(String genre, String publishedFrom, String publishedTo, String detail) {
+        ObjectNode containment = null;
+        if (detail != null && !detail.isBlank()) {
+            try {
+                JsonNode node = OBJECT_MAPPER.readTree(detail);
+                if (!node.isObject()) {
+                    throw new IllegalArgumentException("Error: detail must be a JSON object");
+                }
+                containment = (ObjectNode) node;
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Error: detail must be a JSON object", e);
+            }
+        }
+        if (genre != null && !genre.isBlank()) {
+            if (containment == null) {
+                containment = OBJECT_MAPPER.createObjectNode();
+            }
+            containment.put("genre", genre);
+        }
+        return new BookFilter(containment, year(publishedFrom, "publishedFrom"), year(publishedTo, "publishedTo"));
+    }
+
+    public boolean isEmpty() {
+        return containment == null && publishedFrom == null && publishedTo == null;
+    }
+
+    //Adding this filter's predicates and their parameters to a query under construction
+    public void appendTo(List<String> predicates, List<Object> params) {
+        if (containment != null) {
+            predicates.add("book_detail @> ?::jsonb");
+            params.add(containment.toString());
+        }
+        if (publishedFrom != null) {
+            predicates.add("book_detail ->> 'publishing year' >= ?");
+            params.add(publishedFrom);
+        }
+        if (publishedTo != null) {
+            predicates.add("book_detail ->> 'publishing year' <= ?");
+            params.add(publishedTo);
+        }
+    }
+
+    private static String year(String value, String name) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        if (!YEAR.matcher(value).matches()) {
+            throw new IllegalArgumentException("Error: " + name + " must be a four digit year");
+        }
+        return value;
+    }
+}
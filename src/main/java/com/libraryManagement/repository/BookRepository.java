@@ -1,122 +1,384 @@
 package com.libraryManagement.repository;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.libraryManagement.logging.RateLimitedLog;
+import com.libraryManagement.metrics.LibraryMetrics;
 import com.libraryManagement.model.Book;
+import com.libraryManagement.model.RowVersion;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.lob.DefaultLobHandler;
-import org.springframework.jdbc.support.lob.LobHandler;
 import org.springframework.stereotype.Repository;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
+@Timed(value = "library.repository", description = "Latency of the repository methods", histogram = true)
 public class BookRepository  {
     private static final Logger logger = LoggerFactory.getLogger(BookRepository.class);
+    public static final int STREAM_FETCH_SIZE = 500;
+    //Also run by the reactive read path, see ReactiveLibraryRepository
+    public static final String BOOK_BY_ID_SQL = "SELECT * FROM books where book_id = ?";
+    public static final String ALL_BOOKS_SQL = "SELECT * FROM books ORDER BY book_id";
+    public static final int INSERT_BATCH_SIZE = 500;
+    private static final RowMapper<Book> BOOK_ROW_MAPPER = new BookRowMapper();
+    private static final RowMapper<RowVersion> VERSION_ROW_MAPPER = (rs, rowNum) ->
+            new RowVersion(rs.getString("book_id"), rs.getLong("version"), rs.getObject("updated_at", OffsetDateTime.class).toInstant());
+    //Every write of a book row runs this too, the version and time make its ETag
+    private static final String BUMP_VERSION = "version = version + 1, updated_at = CURRENT_TIMESTAMP";
+    //Per call site limits for the INFO and WARN lines of the paths that run on every request
+    private static final RateLimitedLog CREATE_BOOK_LOG = RateLimitedLog.perSecond(logger, 10);
+    private static final RateLimitedLog BOOK_NOT_FOUND_LOG = RateLimitedLog.perSecond(logger, 10);
+    private static final RateLimitedLog ALL_BOOKS_LOG = RateLimitedLog.perSecond(logger, 1);
+    private static final RateLimitedLog BOOKS_PAGE_LOG = RateLimitedLog.perSecond(logger, 10);
 
     @Autowired
     private final JdbcTemplate jdbcTemplate;
-    ObjectMapper objectMapper = new ObjectMapper();
+    //Off on databases without tsvector support, such as the H2 test profile
+    @Value("${library.search.full-text:true}")
+    private boolean fullTextSearch = true;
+    private final LibraryMetrics metrics;
 
-    public BookRepository(JdbcTemplate jdbcTemplate) {
+    @Autowired
+    public BookRepository(JdbcTemplate jdbcTemplate, LibraryMetrics metrics) {
         this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
     }
 
-    //Inserting or Creating new book into the database
-    public void createBook(Book book) {
-        String sql = "INSERT INTO books(book_id, book_author, book_title, book_detail) VALUES (?, ?, ?, ?::jsonb)";
-        logger.info("Book details to insert - bookId: {}, bookAuthor: {}, bookTitle: {}, bookDetail: {}",
-                book.getBookId(), book.getBookAuthor(), book.getBookTitle(), book.getBookDetail());
-        String bookDetailJson = book.getBookDetail().toString();
-        jdbcTemplate.update(sql, book.getBookId(), book.getBookAuthor(), book.getBookTitle(), bookDetailJson);
-        logger.info("SQL executed successfully. Book created in the database");
+    //Without metrics, for repositories built directly in unit tests and benchmarks
+    public BookRepository(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, LibraryMetrics.NOOP);
+    }
+
+    //author_id is derived from book_author, taking the lowest id when several authors share the name
+    private static final String AUTHOR_ID_OF_NAME = "(SELECT MIN(author_id) FROM authors WHERE author_name = ?)";
+
+    //Inserting or Creating new book into the database, false when the book id is already taken
+    public boolean createBook(Book book) {
+        String sql = "INSERT INTO books(book_id, book_author, book_title, book_detail, author_id) " +
+                "VALUES (?, ?, ?, ?::jsonb, " + AUTHOR_ID_OF_NAME + ") ON CONFLICT DO NOTHING";
+        //The bookDetail document itself is never logged, only its size
+        String bookDetailJson = book.getBookDetailJson();
+        logger.debug("Book details to insert - bookId: {}, bookAuthor: {}, bookTitle: {}, bookDetail length: {}",
+                book.getBookId(), book.getBookAuthor(), book.getBookTitle(), bookDetailJson == null ? 0 : bookDetailJson.length());
+        int rowsAffected = jdbcTemplate.update(sql, book.getBookId(), book.getBookAuthor(), book.getBookTitle(), bookDetailJson,
+                book.getBookAuthor());
+        CREATE_BOOK_LOG.info("Inserted book {}, rows affected: {}", book.getBookId(), rowsAffected);
+        return rowsAffected > 0;
+    }
+
+    //Inserting many books as JDBC batches, returning the affected row count of every book in order
+    public int[] createBooks(List<Book> books) {
+        String sql = "INSERT INTO books(book_id, book_author, book_title, book_detail, author_id) " +
+                "VALUES (?, ?, ?, ?::jsonb, " + AUTHOR_ID_OF_NAME + ") ON CONFLICT DO NOTHING";
+        logger.info("Inserting {} books in batches of {}", books.size(), INSERT_BATCH_SIZE);
+        int[][] batchCounts = jdbcTemplate.batchUpdate(sql, books, INSERT_BATCH_SIZE, (ps, book) -> {
+            ps.setString(1, book.getBookId());
+            ps.setString(2, book.getBookAuthor());
+            ps.setString(3, book.getBookTitle());
+            ps.setString(4, book.getBookDetailJson());
+            ps.setString(5, book.getBookAuthor());
+        });
+        int[] counts = new int[books.size()];
+        int index = 0;
+        for (int[] batch : batchCounts) {
+            for (int count : batch) {
+                counts[index++] = count;
+            }
+        }
+        return counts;
+    }
+
+    //Finding which of the given book IDs are already present, with a single query
+    public Set<String> findExistingBookIds(Collection<String> bookIds) {
+        if (bookIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(bookIds.size(), "?"));
+        String sql = "SELECT book_id FROM books WHERE book_id IN (" + placeholders + ")";
+        return new HashSet<>(jdbcTemplate.queryForList(sql, String.class, bookIds.toArray()));
     }
 
     //Retrieving book by ID
     public Optional<Book> getBook(String bookId) {
-        String sql = "SELECT * FROM books where book_id = ?";
-        logger.info("Executing SQL query to fetch the book with ID: {}", bookId);
-        List<Book> books = jdbcTemplate.query(sql, new BookRowMapper(new ObjectMapper()), bookId);
-        logger.debug("SQL query executed successfully. Number of books retrieved: {}", books.size());
+        logger.debug("Executing SQL query to fetch the book with ID: {}", bookId);
+        List<Book> books = jdbcTemplate.query(BOOK_BY_ID_SQL, BOOK_ROW_MAPPER, bookId);
         if(books.isEmpty()) {
-            logger.warn("No book found with Id: {}", bookId);
+            BOOK_NOT_FOUND_LOG.warn("No book found with Id: {}", bookId);
             return Optional.empty();
         } else {
             Book retrievedBook = books.get(0);
-            logger.info("Book retrieved successfully");
+            logger.debug("Book retrieved successfully");
             return Optional.of(retrievedBook);
         }
     }
 
+    //Retrieving the books with the given IDs with one array query, in no particular order; missing IDs are left out
+    public List<Book> getBooksByIds(Collection<String> bookIds) {
+        if (bookIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        logger.debug("Fetching {} books by ID", bookIds.size());
+        String sql = "SELECT * FROM books WHERE book_id = ANY(?)";
+        List<Book> books = jdbcTemplate.query(sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", bookIds.toArray())), BOOK_ROW_MAPPER);
+        return metrics.recordBooks("getBooksByIds", books);
+    }
+
    // Retrieving all the books available in the database
     public List<Book> getAllBooks() {
-        String sql = "SELECT * FROM books ORDER BY book_id";
-        logger.info("Fetching all books from the database");
-        List<Book> books = jdbcTemplate.query(sql, new BookRowMapper(new ObjectMapper()));
-        logger.info("Successfully retrieved {} books", books.size());
+        logger.debug("Fetching all books from the database");
+        List<Book> books = jdbcTemplate.query(ALL_BOOKS_SQL, BOOK_ROW_MAPPER);
+        ALL_BOOKS_LOG.info("Successfully retrieved {} books", books.size());
+        return metrics.recordBooks("getAllBooks", books);
+    }
+
+    //Retrieving one page of books ordered by book_id, starting after the given key
+    public List<Book> getBooksPage(String afterBookId, int limit) {
+        return getBooksPage(afterBookId, limit, BookFilter.NONE);
+    }
+
+    //Retrieving one page of the books matching the filter, ordered by book_id
+    public List<Book> getBooksPage(String afterBookId, int limit, BookFilter filter) {
+        BOOKS_PAGE_LOG.info("Fetching a page of {} books after ID: {}", limit, afterBookId);
+        List<Object> params = new ArrayList<>();
+        String sql = pageQuery("*", afterBookId, limit, filter, params);
+        List<Book> books = jdbcTemplate.query(sql, BOOK_ROW_MAPPER, params.toArray());
+        logger.debug("Retrieved {} books for the page", books.size());
+        return metrics.recordBooks("getBooksPage", books);
+    }
+
+    //Retrieving only the version of a book, book_detail is not read
+    public Optional<RowVersion> getBookVersion(String bookId) {
+        String sql = "SELECT book_id, version, updated_at FROM books WHERE book_id = ?";
+        return jdbcTemplate.query(sql, VERSION_ROW_MAPPER, bookId).stream().findFirst();
+    }
+
+    //Retrieving only the versions of one page of the books matching the filter, book_detail is not read
+    public List<RowVersion> getBooksPageVersions(String afterBookId, int limit, BookFilter filter) {
+        List<Object> params = new ArrayList<>();
+        String sql = pageQuery("book_id, version, updated_at", afterBookId, limit, filter, params);
+        return jdbcTemplate.query(sql, VERSION_ROW_MAPPER, params.toArray());
+    }
+
+    //Retrieving only the projected fields of a book by ID
+    public Optional<Map<String, Object>> getBookFields(String bookId, FieldProjection projection) {
+        String sql = "SELECT " + projection.selectList() + " FROM books WHERE book_id = ?";
+        logger.debug("Fetching fields of the book with ID: {}", bookId);
+        List<Map<String, Object>> books = jdbcTemplate.query(sql, projection::mapRow, projection.params(bookId));
+        return books.stream().findFirst();
+    }
+
+    //Retrieving only the projected fields of one page of the books matching the filter, ordered by book_id
+    public List<Map<String, Object>> getBooksPage(String afterBookId, int limit, BookFilter filter, FieldProjection projection) {
+        BOOKS_PAGE_LOG.info("Fetching fields of a page of {} books after ID: {}", limit, afterBookId);
+        List<Object> params = new ArrayList<>();
+        String sql = pageQuery(projection.selectList(), afterBookId, limit, filter, params);
+        List<Map<String, Object>> books = jdbcTemplate.query(sql, projection::mapRow, projection.params(params.toArray()));
+        metrics.recordRows("getBooksPageFields", books.size());
         return books;
     }
 
-    //Updating an existing book in the database
-    public void updateBook(Book book) {
-        String sql = "UPDATE books SET book_author = ?, book_title = ?, book_detail = ?::jsonb WHERE book_id = ?";
-        try {
-            int rowsAffected = jdbcTemplate.update(sql, book.getBookAuthor(), book.getBookTitle(), book.getBookDetail(), book.getBookId());
-            if (rowsAffected == 0) {
-                throw new RuntimeException("No book found with ID: " + book.getBookId());
+    private static String pageQuery(String selectList, String afterBookId, int limit, BookFilter filter, List<Object> params) {
+        List<String> predicates = new ArrayList<>();
+        filter.appendTo(predicates, params);
+        if (afterBookId != null) {
+            predicates.add("book_id > ?");
+            params.add(afterBookId);
+        }
+        params.add(limit);
+        String where = predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+        return "SELECT " + selectList + " FROM books" + where + " ORDER BY book_id LIMIT ?";
+    }
+
+    //Finding the books whose title has a word starting with every term, best matches first.
+    //With full text search on, book_title_tsv and its GIN index answer the query; otherwise a LIKE scan is used.
+    public List<RankedBook> searchBooks(List<String> terms, Float afterRank, String afterBookId, int limit) {
+        logger.debug("Searching books for terms {} after rank {} and ID: {}", terms, afterRank, afterBookId);
+        List<Object> params = new ArrayList<>();
+        String rankedBooks;
+        if (fullTextSearch) {
+            List<String> prefixes = new ArrayList<>();
+            for (String term : terms) {
+                prefixes.add(term + ":*");
+            }
+            rankedBooks = "SELECT b.*, ts_rank(b.book_title_tsv, q) AS search_rank " +
+                    "FROM books b, to_tsquery('simple', ?) q WHERE b.book_title_tsv @@ q";
+            params.add(String.join(" & ", prefixes));
+        } else {
+            List<String> predicates = new ArrayList<>();
+            //A word of the title starting with the term, the same matches as the term:* prefix query
+            for (String term : terms) {
+                predicates.add("(LOWER(book_title) LIKE ? OR LOWER(book_title) LIKE ?)");
+                params.add(term + "%");
+                params.add("% " + term + "%");
             }
-        } catch (Exception e) {
-            System.err.println("Error updating the book:" + e.getMessage());
-            e.printStackTrace();
+            rankedBooks = "SELECT b.*, CAST(1 AS REAL) AS search_rank FROM books b WHERE " + String.join(" AND ", predicates);
         }
+        String sql = "SELECT * FROM (" + rankedBooks + ") ranked";
+        if (afterRank != null) {
+            sql += " WHERE (search_rank < ? OR (search_rank = ? AND book_id > ?))";
+            params.add(afterRank);
+            params.add(afterRank);
+            params.add(afterBookId);
+        }
+        sql += " ORDER BY search_rank DESC, book_id LIMIT ?";
+        params.add(limit);
+        List<RankedBook> books = jdbcTemplate.query(sql, (rs, rowNum) ->
+                new RankedBook(BOOK_ROW_MAPPER.mapRow(rs, rowNum), rs.getFloat("search_rank")), params.toArray());
+        metrics.recordRows("searchBooks", books.size());
+        return books;
     }
 
-    //Deleting a book from database
-    public void deleteBook(String bookId) {
+    //Linking the books that carry a new author's name and no author yet, only if the stored author has that name
+    public int linkBooksToAuthor(String authorId, String authorName) {
+        String sql = "UPDATE books SET author_id = ?, " + BUMP_VERSION + " WHERE book_author = ? AND author_id IS NULL " +
+                "AND EXISTS (SELECT 1 FROM authors WHERE author_id = ? AND author_name = ?)";
+        return jdbcTemplate.update(sql, authorId, authorName, authorId, authorName);
+    }
+
+    //Unlinking the books of an author about to be deleted; the foreign key would clear author_id without a new version
+    public int unlinkBooksFromAuthor(String authorId) {
+        String sql = "UPDATE books SET author_id = NULL, " + BUMP_VERSION + " WHERE author_id = ?";
+        return jdbcTemplate.update(sql, authorId);
+    }
+
+    //Unlinking the books of a renamed author that were written under another name than the new one
+    public int unlinkBooksNotNamed(String authorId, String authorName) {
+        String sql = "UPDATE books SET author_id = NULL, " + BUMP_VERSION + " WHERE author_id = ? AND book_author <> ?";
+        return jdbcTemplate.update(sql, authorId, authorName);
+    }
+
+    //Retrieving one page of the books of an author through the (author_id, book_id) index
+    public List<Book> getBooksByAuthorPage(String authorId, String afterBookId, int limit) {
+        logger.debug("Fetching a page of {} books of author {} after ID: {}", limit, authorId, afterBookId);
+        List<Book> books;
+        if (afterBookId == null) {
+            String sql = "SELECT * FROM books WHERE author_id = ? ORDER BY book_id LIMIT ?";
+            books = jdbcTemplate.query(sql, BOOK_ROW_MAPPER, authorId, limit);
+        } else {
+            String sql = "SELECT * FROM books WHERE author_id = ? AND book_id > ? ORDER BY book_id LIMIT ?";
+            books = jdbcTemplate.query(sql, BOOK_ROW_MAPPER, authorId, afterBookId, limit);
+        }
+        return metrics.recordBooks("getBooksByAuthorPage", books);
+    }
+
+    //Streaming every book row by row from the JDBC cursor, only STREAM_FETCH_SIZE rows are held at a time
+    public void streamAllBooks(Consumer<Book> consumer) {
+        logger.info("Streaming all books from the database");
+        long[] rowsAndBytes = new long[2];
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(ALL_BOOKS_SQL);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            Book book = BOOK_ROW_MAPPER.mapRow(rs, rs.getRow());
+            rowsAndBytes[0]++;
+            rowsAndBytes[1] += LibraryMetrics.detailLength(book);
+            consumer.accept(book);
+        });
+        metrics.recordRows("streamAllBooks", rowsAndBytes[0]);
+        metrics.recordPayload("streamAllBooks", rowsAndBytes[1]);
+    }
+
+    //Streaming only book_id, book_author, book_title and author_id of every book, book_detail is neither read nor parsed
+    public void streamBookSummaries(Consumer<Book> consumer) {
+        String sql = "SELECT book_id, book_author, book_title, author_id FROM books";
+        logger.info("Streaming book summaries from the database");
+        long[] rows = new long[1];
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            Book book = new Book(rs.getString("book_id"), rs.getString("book_author"), rs.getString("book_title"), null);
+            book.setAuthorId(rs.getString("author_id"));
+            rows[0]++;
+            consumer.accept(book);
+        });
+        metrics.recordRows("streamBookSummaries", rows[0]);
+    }
+
+    //Updating an existing book in the database, false when no book has the given id
+    public boolean updateBook(Book book) {
+        String sql = "UPDATE books SET book_author = ?, book_title = ?, book_detail = ?::jsonb, author_id = " + AUTHOR_ID_OF_NAME +
+                ", " + BUMP_VERSION + " WHERE book_id = ?";
+        int rowsAffected = jdbcTemplate.update(sql, book.getBookAuthor(), book.getBookTitle(), book.getBookDetailJson(),
+                book.getBookAuthor(), book.getBookId());
+        if (rowsAffected == 0) {
+            logger.warn("No book found with Id: {}", book.getBookId());
+        }
+        return rowsAffected > 0;
+    }
+
+    //Updating the book only while it still has the expected version, false when it has another one or is gone
+    public boolean updateBook(Book book, RowVersion expected) {
+        String sql = "UPDATE books SET book_author = ?, book_title = ?, book_detail = ?::jsonb, author_id = " + AUTHOR_ID_OF_NAME +
+                ", " + BUMP_VERSION + " WHERE book_id = ? AND version = ? AND updated_at = ?";
+        return jdbcTemplate.update(sql, book.getBookAuthor(), book.getBookTitle(), book.getBookDetailJson(),
+                book.getBookAuthor(), book.getBookId(), expected.getVersion(),
+                OffsetDateTime.ofInstant(expected.getUpdatedAt(), ZoneOffset.UTC)) > 0;
+    }
+
+    //Deleting a book from database, false when no book has the given id
+    public boolean deleteBook(String bookId) {
         String sql = "DELETE FROM books WHERE book_id = ?";
-        jdbcTemplate.update(sql, bookId);
+        return jdbcTemplate.update(sql, bookId) > 0;
     }
 
     public int deleteBooksByAuthorName(String authorName) {
+        //Resolving the name to author ids first lets the delete use the author_id index instead of a scan
         String sql = "DELETE FROM books " +
-                "USING authors " +
-                "WHERE books.book_author = authors.author_name " +
-                "AND authors.author_name = ?;";
+                "WHERE author_id IN (SELECT author_id FROM authors WHERE author_name = ?)";
         return jdbcTemplate.update(sql, authorName);
     }
 
     private static class BookRowMapper implements RowMapper<Book> {
-        private final ObjectMapper objectMapper;
-        public BookRowMapper(ObjectMapper objectMapper) {
-            this.objectMapper = objectMapper;
-        }
-
         @Override
         public Book mapRow(ResultSet rs, int rowNum) throws SQLException {
             Book book = new Book();
             book.setBookId(rs.getString("book_id"));
             book.setBookAuthor(rs.getString("book_author"));
             book.setBookTitle(rs.getString("book_title"));
-//            String bookDetailJson = rs.getString("book_detail");
-            LobHandler lobHandler = new DefaultLobHandler();
-            String bookDetailJson = lobHandler.getClobAsString(rs,"book_detail");
-           // logger.info("Raw JSON String retrieved from database: {}", bookDetailJson);
-            try {
-                JsonNode bookDetail = objectMapper.readTree(bookDetailJson);
-                book.setBookDetail(bookDetail);
-              //  logger.info("Parsed JSON Node: {}", bookDetail);
-            } catch (Exception e) {
-                throw new RuntimeException("Error while reading book_detail from JSON", e);
-            }
-           // logger.info("Successfully mapped book with bookDetail: {}", book.getBookDetail());
+            book.setAuthorId(rs.getString("author_id"));
+            //The jsonb text is kept as it is and only parsed if server side code reads the detail
+            book.setBookDetailJson(rs.getString("book_detail"));
+            book.setVersion(rs.getLong("version"));
+            book.setUpdatedAt(rs.getObject("updated_at", OffsetDateTime.class).toInstant());
+            return book;
+        }
+    }
+
+    public static class RankedBook {
+        private final Book book;
+        private final float rank;
+
+        public RankedBook(Book book, float rank) {
+            this.book = book;
+            this.rank = rank;
+        }
+
+        public Book getBook() {
             return book;
         }
+
+        public float getRank() {
+            return rank;
+        }
     }
-}
\ No newline at end of file
+}
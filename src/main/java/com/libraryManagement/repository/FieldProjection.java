@@ -0,0 +1,155 @@
+package com.libraryManagement.repository;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Translates a fields= list such as "bookTitle,bookDetail.genre" into the SELECT list of a query,
+//so columns and bookDetail keys that were not asked for are never read.
+//The id is always selected because keyset pagination continues from it.
+public class FieldProjection {
+    private static final String DETAIL_FIELD = "bookDetail";
+
+    private final List<Column> columns;
+    private final List<Object> selectParams;
+    private final String selectList;
+
+    private FieldProjection(List<Column> columns) {
+        this.columns = columns;
+        this.selectParams = new ArrayList<>();
+        List<String> expressions = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if (column.kind == Kind.DETAIL_KEY) {
+                //The key is bound as a parameter, it never becomes part of the SQL text
+                expressions.add("book_detail -> ? AS f" + i);
+                selectParams.add(column.detailKey);
+            } else {
+                expressions.add(column.sqlColumn + " AS f" + i);
+            }
+        }
+        this.selectList = String.join(", ", expressions);
+    }
+
+    public static FieldProjection forBooks(String fields) {
+        List<Column> columns = new ArrayList<>();
+        columns.add(new Column("bookId", "book_id", Kind.TEXT, null));
+        boolean wholeDetail = false;
+        List<String> detailKeys = new ArrayList<>();
+        for (String field : split(fields)) {
+            switch (field) {
+                case "bookId" -> { }
+                case "bookAuthor" -> addOnce(columns, new Column(field, "book_author", Kind.TEXT, null));
+                case "bookTitle" -> addOnce(columns, new Column(field, "book_title", Kind.TEXT, null));
+                case "authorId" -> addOnce(columns, new Column(field, "author_id", Kind.TEXT, null));
+                case DETAIL_FIELD -> wholeDetail = true;
+                default -> {
+                    if (!field.startsWith(DETAIL_FIELD + ".") || field.length() == DETAIL_FIELD.length() + 1) {
+                        throw new IllegalArgumentException("Error: Unknown book field '" + field + "'");
+                    }
+                    String key = field.substring(DETAIL_FIELD.length() + 1);
+                    if (!detailKeys.contains(key)) {
+                        detailKeys.add(key);
+                    }
+                }
+            }
+        }
+        if (wholeDetail) {
+            columns.add(new Column(DETAIL_FIELD, "book_detail", Kind.JSON, null));
+        } else {
+            for (String key : detailKeys) {
+                columns.add(new Column(DETAIL_FIELD, null, Kind.DETAIL_KEY, key));
+            }
+        }
+        return new FieldProjection(columns);
+    }
+
+    public static FieldProjection forAuthors(String fields) {
+        List<Column> columns = new ArrayList<>();
+        columns.add(new Column("authorId", "author_id", Kind.TEXT, null));
+        for (String field : split(fields)) {
+            switch (field) {
+                case "authorId" -> { }
+                case "authorName" -> addOnce(columns, new Column(field, "author_name", Kind.TEXT, null));
+                default -> throw new IllegalArgumentException("Error: Unknown author field '" + field + "'");
+            }
+        }
+        return new FieldProjection(columns);
+    }
+
+    public String selectList() {
+        return selectList;
+    }
+
+    //The parameters of the SELECT list followed by the ones of the rest of the query
+    public Object[] params(Object... queryParams) {
+        List<Object> params = new ArrayList<>(selectParams);
+        params.addAll(Arrays.asList(queryParams));
+        return params.toArray();
+    }
+
+    public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            String value = rs.getString("f" + i);
+            switch (column.kind) {
+                case TEXT -> row.put(column.field, value);
+                case JSON -> row.put(column.field, value == null ? null : new RawValue(value));
+                case DETAIL_KEY -> {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> detail = (Map<String, Object>) row.computeIfAbsent(column.field, f -> new LinkedHashMap<>());
+                    if (value != null) {
+                        detail.put(column.detailKey, new RawValue(value));
+                    }
+                }
+            }
+        }
+        return row;
+    }
+
+    private static List<String> split(String fields) {
+        List<String> names = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            if (!field.isBlank()) {
+                names.add(field.trim());
+            }
+        }
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("Error: fields cannot be empty");
+        }
+        return names;
+    }
+
+    private static void addOnce(List<Column> columns, Column column) {
+        if (columns.stream().noneMatch(existing -> existing.field.equals(column.field))) {
+            columns.add(column);
+        }
+    }
+
+    private enum Kind {
+        TEXT,
+        JSON,
+        DETAIL_KEY
+    }
+
+    private static class Column {
+        private final String field;
+        private final String sqlColumn;
+        private final Kind kind;
+        private final String detailKey;
+
+        Column(String field, String sqlColumn, Kind kind, String detailKey) {
+            this.field = field;
+            this.sqlColumn = sqlColumn;
+            this.kind = kind;
+            this.detailKey = detailKey;
+        }
+    }
+}
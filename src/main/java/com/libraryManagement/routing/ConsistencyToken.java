@@ -0,0 +1,44 @@
+package com.libraryManagement.routing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+//Handed to the client after a write and sent back on its next reads, so they see that write.
+//Carries the primary's WAL position on PostgreSQL and always the time of the write.
+public class ConsistencyToken {
+    private final long writtenAtMillis;
+    private final String lsn;
+
+    public ConsistencyToken(long writtenAtMillis, String lsn) {
+        this.writtenAtMillis = writtenAtMillis;
+        this.lsn = lsn;
+    }
+
+    public long getWrittenAtMillis() {
+        return writtenAtMillis;
+    }
+
+    //Null when the primary is not PostgreSQL
+    public String getLsn() {
+        return lsn;
+    }
+
+    //Opaque to the client, like the page cursors
+    public String encode() {
+        String token = writtenAtMillis + "/" + (lsn == null ? "" : lsn);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ConsistencyToken decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            //An LSN contains a slash itself, so only the first one separates the time
+            int separator = decoded.indexOf('/');
+            long writtenAtMillis = Long.parseLong(decoded.substring(0, separator));
+            String lsn = decoded.substring(separator + 1);
+            return new ConsistencyToken(writtenAtMillis, lsn.isEmpty() ? null : lsn);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Error: Invalid consistency token '" + token + "'", e);
+        }
+    }
+}
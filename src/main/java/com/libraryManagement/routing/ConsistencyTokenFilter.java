@@ -0,0 +1,77 @@
+package com.libraryManagement.routing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+
+//Gives every successful write request an X-Consistency-Token response header, and makes the token a request
+//sends back in the same header apply to the reads of that request.
+//The body of a write is held back until the token is set, the headers of a committed response cannot change.
+@Component
+@ConditionalOnExpression("!'${library.replicas.urls:}'.isBlank()")
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+    public static final String CONSISTENCY_TOKEN_HEADER = "X-Consistency-Token";
+
+    private final ObjectProvider<DataSource> dataSource;
+    private volatile ReplicaRoutingDataSource routingDataSource;
+
+    public ConsistencyTokenFilter(ObjectProvider<DataSource> dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(CONSISTENCY_TOKEN_HEADER);
+        try {
+            ReadRouting.setToken(header == null ? null : ConsistencyToken.decode(header));
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.getWriter().write(e.getMessage());
+            return;
+        }
+        try {
+            if (isRead(request)) {
+                chain.doFilter(request, response);
+                return;
+            }
+            ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+            chain.doFilter(request, wrapper);
+            if (wrapper.getStatus() < 400) {
+                wrapper.setHeader(CONSISTENCY_TOKEN_HEADER, routingDataSource().tokenAfterWrite().encode());
+            }
+            wrapper.copyBodyToResponse();
+        } finally {
+            ReadRouting.clearToken();
+        }
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    private ReplicaRoutingDataSource routingDataSource() throws ServletException {
+        ReplicaRoutingDataSource routing = routingDataSource;
+        if (routing == null) {
+            try {
+                routing = dataSource.getObject().unwrap(ReplicaRoutingDataSource.class);
+            } catch (SQLException e) {
+                throw new ServletException("The DataSource does not route to replicas", e);
+            }
+            routingDataSource = routing;
+        }
+        return routing;
+    }
+}
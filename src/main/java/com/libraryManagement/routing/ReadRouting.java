@@ -0,0 +1,58 @@
+package com.libraryManagement.routing;
+
+import java.util.function.Supplier;
+
+//Per thread routing state read by ReplicaRoutingDataSource when a connection is taken:
+//whether the current code may read from a replica, and the consistency token the current request carried
+public final class ReadRouting {
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+    private static final ThreadLocal<ConsistencyToken> TOKEN = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    public static boolean isReplicaRead() {
+        return Boolean.TRUE.equals(REPLICA_READ.get());
+    }
+
+    //Running a read on the primary even inside a @ReplicaRead method, for results that are kept and shared
+    //like the cache entries, where a row from a lagging replica would be served to everyone
+    public static <T> T onPrimary(Supplier<T> read) {
+        Boolean previous = enter(false);
+        try {
+            return read.get();
+        } finally {
+            exit(previous);
+        }
+    }
+
+    public static ConsistencyToken currentToken() {
+        return TOKEN.get();
+    }
+
+    public static void setToken(ConsistencyToken token) {
+        if (token == null) {
+            TOKEN.remove();
+        } else {
+            TOKEN.set(token);
+        }
+    }
+
+    public static void clearToken() {
+        TOKEN.remove();
+    }
+
+    static Boolean enter(boolean replicaRead) {
+        Boolean previous = REPLICA_READ.get();
+        REPLICA_READ.set(replicaRead);
+        return previous;
+    }
+
+    static void exit(Boolean previous) {
+        if (previous == null) {
+            REPLICA_READ.remove();
+        } else {
+            REPLICA_READ.set(previous);
+        }
+    }
+}
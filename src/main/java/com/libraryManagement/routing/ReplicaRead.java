@@ -0,0 +1,13 @@
+package com.libraryManagement.routing;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//Marks a read-only method whose statements may run on a read replica, see ReplicaRoutingDataSource.
+//Only for methods that never write: everything they call is routed the same way.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReplicaRead {
+}
@@ -0,0 +1,26 @@
+package com.libraryManagement.routing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+//Opens the replica read scope around @ReplicaRead methods.
+//Ordered before the transaction advice, so a read-only transaction already takes its connection from the replica.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReplicaReadAspect {
+
+    @Around("@annotation(com.libraryManagement.routing.ReplicaRead)")
+    public Object routeToReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+        Boolean previous = ReadRouting.enter(true);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadRouting.exit(previous);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.libraryManagement.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+//Sends the connections taken inside a @ReplicaRead scope to the replicas, round robin, and every other
+//connection to the primary. A read carrying a consistency token only goes to the replica once that replica has
+//caught up with the write the token stands for: on PostgreSQL once it has replayed the token's WAL position,
+//elsewhere once pinDuration has passed since the write. Until then the read is pinned to the primary, or with
+//WAIT it first waits up to maxWait for the replica.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final String PRIMARY = "primary";
+    private static final long POLL_INTERVAL_MILLIS = 10;
+
+    public enum Consistency {
+        PIN,
+        WAIT
+    }
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final Duration pinDuration;
+    private final Consistency consistency;
+    private final Duration maxWait;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ThreadLocal<DataSource> lastTarget = new ThreadLocal<>();
+    private volatile Boolean postgres;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration pinDuration,
+                                    Consistency consistency, Duration maxWait) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.pinDuration = pinDuration;
+        this.consistency = consistency;
+        this.maxWait = maxWait;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < this.replicas.size(); i++) {
+            targets.put(replicaKey(i), this.replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !ReadRouting.isReplicaRead() || inWriteTransaction()) {
+            return PRIMARY;
+        }
+        int index = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        ConsistencyToken token = ReadRouting.currentToken();
+        if (token != null && !caughtUp(replicas.get(index), token)) {
+            logger.debug("Replica {} has not caught up with the client's last write, reading from the primary", index);
+            return PRIMARY;
+        }
+        return replicaKey(index);
+    }
+
+    @Override
+    protected DataSource determineTargetDataSource() {
+        DataSource target = super.determineTargetDataSource();
+        lastTarget.set(target);
+        return target;
+    }
+
+    //The pool behind the last connection this thread took, the primary or one of the replicas, so work done
+    //later for that connection on another thread (the slow query EXPLAIN) can go to the same database
+    public DataSource lastTarget() {
+        DataSource target = lastTarget.get();
+        return target == null ? primary : target;
+    }
+
+    //The same routing over wrapped pools, such as one bulkhead in front of each of them
+    public ReplicaRoutingDataSource mapTargets(UnaryOperator<DataSource> wrapper) {
+        return new ReplicaRoutingDataSource(wrapper.apply(primary), replicas.stream().map(wrapper).toList(),
+                pinDuration, consistency, maxWait);
+    }
+
+    //The token for a write that has just committed
+    public ConsistencyToken tokenAfterWrite() {
+        long now = System.currentTimeMillis();
+        try (Connection connection = primary.getConnection()) {
+            if (isPostgres(connection)) {
+                try (PreparedStatement ps = connection.prepareStatement("SELECT pg_current_wal_lsn()::text");
+                     ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return new ConsistencyToken(now, rs.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            //The time alone still pins the client's reads to the primary for pinDuration
+            logger.warn("Could not read the WAL position of the primary: {}", e.getMessage());
+        }
+        return new ConsistencyToken(now, null);
+    }
+
+    private boolean caughtUp(DataSource replica, ConsistencyToken token) {
+        long deadline = System.nanoTime() + (consistency == Consistency.WAIT ? maxWait.toNanos() : 0);
+        while (!replayed(replica, token)) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean replayed(DataSource replica, ConsistencyToken token) {
+        if (token.getLsn() == null) {
+            return System.currentTimeMillis() - token.getWrittenAtMillis() >= pinDuration.toMillis();
+        }
+        //A server that is not a standby has no replay position, its current position is what it has
+        String sql = "SELECT COALESCE(pg_last_wal_replay_lsn(), pg_current_wal_lsn()) >= ?::pg_lsn";
+        try (Connection connection = replica.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, token.getLsn());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        } catch (SQLException e) {
+            logger.warn("Could not read the replay position of a replica: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isPostgres(Connection connection) throws SQLException {
+        if (postgres == null) {
+            postgres = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgres");
+        }
+        return postgres;
+    }
+
+    private static boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private static String replicaKey(int index) {
+        return "replica-" + index;
+    }
+}
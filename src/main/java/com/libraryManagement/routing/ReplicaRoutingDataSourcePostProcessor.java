@@ -0,0 +1,72 @@
+package com.libraryManagement.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+//Puts a ReplicaRoutingDataSource over the application DataSource when library.replicas.urls lists replicas.
+//Runs before the other DataSource post processors, so the slow query log and the bulkhead cover the replicas too.
+@Component
+public class ReplicaRoutingDataSourcePostProcessor implements BeanPostProcessor, Ordered, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSourcePostProcessor.class);
+
+    private final List<String> urls;
+    private final String username;
+    private final String password;
+    private final Duration pinDuration;
+    private final ReplicaRoutingDataSource.Consistency consistency;
+    private final Duration maxWait;
+    private final List<DataSource> replicas = new ArrayList<>();
+
+    public ReplicaRoutingDataSourcePostProcessor(@Value("${library.replicas.urls:}") List<String> urls,
+                                                 @Value("${spring.datasource.username:}") String username,
+                                                 @Value("${spring.datasource.password:}") String password,
+                                                 @Value("${library.replicas.pin-duration:PT5S}") Duration pinDuration,
+                                                 @Value("${library.replicas.consistency:pin}") String consistency,
+                                                 @Value("${library.replicas.max-wait:PT0.2S}") Duration maxWait) {
+        this.urls = urls.stream().map(String::strip).filter(url -> !url.isEmpty()).toList();
+        this.username = username;
+        this.password = password;
+        this.pinDuration = pinDuration;
+        this.consistency = ReplicaRoutingDataSource.Consistency.valueOf(consistency.toUpperCase(Locale.ROOT));
+        this.maxWait = maxWait;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (urls.isEmpty() || !(bean instanceof DataSource primary) || bean instanceof ReplicaRoutingDataSource) {
+            return bean;
+        }
+        for (String url : urls) {
+            replicas.add(DataSourceBuilder.create().url(url).username(username).password(password).build());
+        }
+        logger.info("Routing the reads of {} to {} replicas, consistency {}", beanName, replicas.size(), consistency);
+        return new ReplicaRoutingDataSource(primary, replicas, pinDuration, consistency, maxWait);
+    }
+
+    //The replica pools are not beans, so nothing else closes them
+    @Override
+    public void destroy() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
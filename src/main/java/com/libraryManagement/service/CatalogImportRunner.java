@@ -0,0 +1,42 @@
+package com.libraryManagement.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+//Runs the nightly catalog refresh when started with
+//--library.import.authors-file=... and/or --library.import.books-file=...
+@Component
+public class CatalogImportRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportRunner.class);
+
+    private final CatalogImportService catalogImportService;
+    private final String authorsFile;
+    private final String booksFile;
+
+    public CatalogImportRunner(CatalogImportService catalogImportService,
+                               @Value("${library.import.authors-file:}") String authorsFile,
+                               @Value("${library.import.books-file:}") String booksFile) {
+        this.catalogImportService = catalogImportService;
+        this.authorsFile = authorsFile;
+        this.booksFile = booksFile;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        //Authors go first so the books of a new author can be joined right after the refresh
+        if (!authorsFile.isEmpty()) {
+            logger.info("Starting authors import from {}", authorsFile);
+            catalogImportService.importAuthors(Path.of(authorsFile));
+        }
+        if (!booksFile.isEmpty()) {
+            logger.info("Starting books import from {}", booksFile);
+            catalogImportService.importBooks(Path.of(booksFile));
+        }
+    }
+}
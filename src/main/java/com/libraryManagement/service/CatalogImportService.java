@@ -0,0 +1,515 @@
+package com.libraryManagement.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryManagement.cache.AuthorDirectory;
+import com.libraryManagement.cache.LibraryCache;
+import com.libraryManagement.model.Author;
+import com.libraryManagement.model.Book;
+import com.libraryManagement.model.ImportResult;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class CatalogImportService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportService.class);
+    public static final int READ_BUFFER_SIZE = 64 * 1024;
+    public static final int COPY_BUFFER_SIZE = 64 * 1024;
+    public static final int FALLBACK_BATCH_SIZE = 500;
+    public static final int PROGRESS_INTERVAL = 100_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final LibraryService libraryService;
+    private final LibraryCache libraryCache;
+    private final AuthorDirectory authorDirectory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public CatalogImportService(JdbcTemplate jdbcTemplate, DataSource dataSource, LibraryService libraryService,
+                                LibraryCache libraryCache, AuthorDirectory authorDirectory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.libraryService = libraryService;
+        this.libraryCache = libraryCache;
+        this.authorDirectory = authorDirectory;
+    }
+
+    //Importing books from a CSV (book_id,book_author,book_title,book_detail) or NDJSON file.
+    //CSV fields in double quotes may span lines, NDJSON takes one record per line
+    @Transactional
+    public ImportResult importBooks(Path file) {
+        return runImport(file, new BookImport());
+    }
+
+    //Importing authors from a CSV (author_id,author_name) or NDJSON file
+    @Transactional
+    public ImportResult importAuthors(Path file) {
+        return runImport(file, new AuthorImport());
+    }
+
+    private <T> ImportResult runImport(Path file, RecordImport<T> recordImport) {
+        boolean ndjson = isNdjson(file);
+        logger.info("Importing {} from {} as {}", recordImport.table(), file, ndjson ? "NDJSON" : "CSV");
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            RowSink<T> sink = connection.isWrapperFor(PGConnection.class)
+                    ? new CopySink<>(connection.unwrap(PGConnection.class), recordImport)
+                    : new BatchSink<>(recordImport);
+            return readFile(file, ndjson, recordImport, sink);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error while importing " + recordImport.table() + " from " + file, e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private <T> ImportResult readFile(Path file, boolean ndjson, RecordImport<T> recordImport, RowSink<T> sink) throws SQLException {
+        long startNanos = System.nanoTime();
+        long rowsRead = 0;
+        long rowsRejected = 0;
+        long rowsMerged;
+        boolean finished = false;
+        sink.begin();
+        try (BufferedReader reader = new BufferedReader(
+                Files.newBufferedReader(file, StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            String line;
+            boolean firstLine = true;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || (firstLine && !ndjson && line.startsWith(recordImport.idColumn()))) {
+                    firstLine = false;
+                    continue;
+                }
+                firstLine = false;
+                //A quoted CSV field may hold line breaks, the record goes on until its quotes are balanced
+                while (!ndjson && inQuotedField(line)) {
+                    String next = reader.readLine();
+                    if (next == null) {
+                        break;
+                    }
+                    line = line + '\n' + next;
+                }
+                rowsRead++;
+                T record;
+                try {
+                    record = ndjson
+                            ? objectMapper.readValue(line, recordImport.type())
+                            : recordImport.fromCsv(parseCsvLine(line));
+                    recordImport.validate(record);
+                } catch (IOException | IllegalArgumentException e) {
+                    rowsRejected++;
+                    logger.warn("Rejected {} line {}: {}", recordImport.table(), rowsRead, e.getMessage());
+                    continue;
+                }
+                sink.accept(record);
+                if (rowsRead % PROGRESS_INTERVAL == 0) {
+                    logProgress(recordImport.table(), rowsRead, startNanos);
+                }
+            }
+            rowsMerged = sink.finish();
+            finished = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while reading " + file, e);
+        } finally {
+            //Whatever failed, a COPY still in progress is cancelled before the rollback and before the connection
+            //goes back to the pool
+            if (!finished) {
+                abort(sink);
+            }
+        }
+        String backfillSql = recordImport.backfillSql();
+        if (backfillSql != null) {
+            int backfilled = jdbcTemplate.update(backfillSql);
+            logger.info("Resolved author_id of {} books after importing {}", backfilled, recordImport.table());
+        }
+        //A refresh touches an unknown set of rows, so the lookup cache starts over
+        libraryCache.invalidateAll();
+        authorDirectory.invalidate();
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        ImportResult result = new ImportResult(rowsRead, rowsRejected, rowsMerged, elapsedMillis);
+        logger.info("Imported {}: read {}, rejected {}, merged {} in {} ms ({} rows/s)", recordImport.table(),
+                rowsRead, rowsRejected, rowsMerged, elapsedMillis, result.getRowsPerSecond());
+        return result;
+    }
+
+    private void abort(RowSink<?> sink) {
+        try {
+            sink.abort();
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Could not abort the import cleanly: {}", e.getMessage());
+        }
+    }
+
+    private void logProgress(String table, long rowsRead, long startNanos) {
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        logger.info("Import of {} in progress: {} rows read ({} rows/s)", table, rowsRead, rowsRead * 1000 / elapsedMillis);
+    }
+
+    private static boolean isNdjson(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    //True when the text ends inside a double quoted field; "" escapes come in pairs and leave the state as it is
+    static boolean inQuotedField(String text) {
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                quoted = !quoted;
+            }
+        }
+        return quoted;
+    }
+
+    //Splitting one CSV record, honouring double quoted fields and "" escapes
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static void appendCsvField(StringBuilder buffer, String value) {
+        buffer.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private interface RowSink<T> {
+        void begin() throws SQLException;
+
+        void accept(T record) throws SQLException;
+
+        long finish() throws SQLException;
+
+        void abort() throws SQLException;
+    }
+
+    //Streams validated rows into a staging table through COPY, then merges them into the real table.
+    //The staging table is a temporary table of the import's own transaction, dropped when it commits or rolls back,
+    //so concurrent imports each stage into their own table instead of truncating each other's rows.
+    //Rows are encoded into a bounded buffer and handed to the server whenever it fills up, so a slow server
+    //blocks the reader instead of letting the file pile up in memory.
+    private class CopySink<T> implements RowSink<T> {
+        private final PGConnection connection;
+        private final RecordImport<T> recordImport;
+        private final StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE);
+        private CopyIn copyIn;
+        private long lineNumber;
+
+        CopySink(PGConnection connection, RecordImport<T> recordImport) {
+            this.connection = connection;
+            this.recordImport = recordImport;
+        }
+
+        @Override
+        public void begin() throws SQLException {
+            jdbcTemplate.execute(recordImport.stagingDdl());
+            copyIn = connection.getCopyAPI().copyIn(
+                    "COPY " + recordImport.stagingTable() + " FROM STDIN WITH (FORMAT csv)");
+        }
+
+        @Override
+        public void accept(T record) throws SQLException {
+            buffer.append(++lineNumber);
+            for (String value : recordImport.toColumns(record)) {
+                buffer.append(',');
+                appendCsvField(buffer, value);
+            }
+            buffer.append('\n');
+            if (buffer.length() >= COPY_BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        @Override
+        public long finish() throws SQLException {
+            flush();
+            long copied = copyIn.endCopy();
+            logger.info("Copied {} rows into {}, merging into {}", copied, recordImport.stagingTable(), recordImport.table());
+            return jdbcTemplate.update(recordImport.mergeSql());
+        }
+
+        @Override
+        public void abort() throws SQLException {
+            if (copyIn != null && copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    //Fallback for databases without COPY (the H2 test profile), upserting fixed size JDBC batches
+    private class BatchSink<T> implements RowSink<T> {
+        private final RecordImport<T> recordImport;
+        private final List<Object[]> batch = new ArrayList<>(FALLBACK_BATCH_SIZE);
+        private long merged;
+
+        BatchSink(RecordImport<T> recordImport) {
+            this.recordImport = recordImport;
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void accept(T record) {
+            batch.add(recordImport.fallbackParams(record));
+            if (batch.size() >= FALLBACK_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            for (int count : jdbcTemplate.batchUpdate(recordImport.fallbackSql(), batch)) {
+                merged += Math.max(count, 0);
+            }
+            batch.clear();
+        }
+
+        @Override
+        public long finish() {
+            flush();
+            return merged;
+        }
+
+        @Override
+        public void abort() {
+            batch.clear();
+        }
+    }
+
+    private interface RecordImport<T> {
+        String table();
+
+        String stagingTable();
+
+        String idColumn();
+
+        Class<T> type();
+
+        T fromCsv(List<String> fields);
+
+        void validate(T record);
+
+        String[] toColumns(T record);
+
+        default Object[] fallbackParams(T record) {
+            return toColumns(record);
+        }
+
+        String stagingDdl();
+
+        String mergeSql();
+
+        String fallbackSql();
+
+        //Run after the merge on both paths, for rows of other tables that the imported records complete
+        default String backfillSql() {
+            return null;
+        }
+    }
+
+    private class BookImport implements RecordImport<Book> {
+        @Override
+        public String table() {
+            return "books";
+        }
+
+        @Override
+        public String stagingTable() {
+            return "books_import_staging";
+        }
+
+        @Override
+        public String idColumn() {
+            return "book_id";
+        }
+
+        @Override
+        public Class<Book> type() {
+            return Book.class;
+        }
+
+        @Override
+        public Book fromCsv(List<String> fields) {
+            if (fields.size() != 4) {
+                throw new IllegalArgumentException("Error: Expected 4 columns but found " + fields.size());
+            }
+            try {
+                return new Book(fields.get(0), fields.get(1), fields.get(2), objectMapper.readTree(fields.get(3)));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Error: book_detail is not valid JSON", e);
+            }
+        }
+
+        @Override
+        public void validate(Book book) {
+            libraryService.validateBook(book);
+        }
+
+        @Override
+        public String[] toColumns(Book book) {
+            return new String[]{book.getBookId(), book.getBookAuthor(), book.getBookTitle(), book.getBookDetailJson()};
+        }
+
+        @Override
+        public Object[] fallbackParams(Book book) {
+            //The author name is bound a second time to resolve author_id, and the id again to bump the version
+            return new Object[]{book.getBookId(), book.getBookAuthor(), book.getBookTitle(), book.getBookDetailJson(),
+                    book.getBookAuthor(), book.getBookId()};
+        }
+
+        @Override
+        public String stagingDdl() {
+            return "CREATE TEMP TABLE books_import_staging (" +
+                    "line_no bigint, book_id varchar(50), book_author varchar(50), book_title varchar(50), book_detail text) " +
+                    "ON COMMIT DROP";
+        }
+
+        @Override
+        public String mergeSql() {
+            //The last line wins when a book appears more than once in the file
+            return "INSERT INTO books (book_id, book_author, book_title, book_detail, author_id) " +
+                    "SELECT DISTINCT ON (s.book_id) s.book_id, s.book_author, s.book_title, s.book_detail::jsonb, " +
+                    "(SELECT MIN(a.author_id) FROM authors a WHERE a.author_name = s.book_author) " +
+                    "FROM books_import_staging s ORDER BY s.book_id, s.line_no DESC " +
+                    "ON CONFLICT (book_id) DO UPDATE SET book_author = EXCLUDED.book_author, " +
+                    "book_title = EXCLUDED.book_title, book_detail = EXCLUDED.book_detail, author_id = EXCLUDED.author_id, " +
+                    "version = books.version + 1, updated_at = now()";
+        }
+
+        @Override
+        public String fallbackSql() {
+            return "MERGE INTO books (book_id, book_author, book_title, book_detail, author_id, version, updated_at) KEY (book_id) " +
+                    "VALUES (?, ?, ?, ?::jsonb, (SELECT MIN(author_id) FROM authors WHERE author_name = ?), " +
+                    "COALESCE((SELECT version + 1 FROM books WHERE book_id = ?), 1), CURRENT_TIMESTAMP)";
+        }
+    }
+
+    private class AuthorImport implements RecordImport<Author> {
+        @Override
+        public String table() {
+            return "authors";
+        }
+
+        @Override
+        public String stagingTable() {
+            return "authors_import_staging";
+        }
+
+        @Override
+        public String idColumn() {
+            return "author_id";
+        }
+
+        @Override
+        public Class<Author> type() {
+            return Author.class;
+        }
+
+        @Override
+        public Author fromCsv(List<String> fields) {
+            if (fields.size() != 2) {
+                throw new IllegalArgumentException("Error: Expected 2 columns but found " + fields.size());
+            }
+            return new Author(fields.get(0), fields.get(1));
+        }
+
+        @Override
+        public void validate(Author author) {
+            if (author.getAuthorId() == null || author.getAuthorId().isEmpty()) {
+                throw new IllegalArgumentException("Error: Author ID is required as authorId and it cannot be null or empty");
+            }
+            if (author.getAuthorName() == null || author.getAuthorName().isEmpty()) {
+                throw new IllegalArgumentException("Error: Author Name is required as authorName and it cannot be null or empty");
+            }
+        }
+
+        @Override
+        public String[] toColumns(Author author) {
+            return new String[]{author.getAuthorId(), author.getAuthorName()};
+        }
+
+        @Override
+        public Object[] fallbackParams(Author author) {
+            //The id is bound a second time to bump the version
+            return new Object[]{author.getAuthorId(), author.getAuthorName(), author.getAuthorId()};
+        }
+
+        @Override
+        public String stagingDdl() {
+            return "CREATE TEMP TABLE authors_import_staging (" +
+                    "line_no bigint, author_id varchar(10), author_name varchar(50)) ON COMMIT DROP";
+        }
+
+        @Override
+        public String mergeSql() {
+            //The last line wins when an author appears more than once in the file
+            return "INSERT INTO authors (author_id, author_name) " +
+                    "SELECT DISTINCT ON (author_id) author_id, author_name " +
+                    "FROM authors_import_staging ORDER BY author_id, line_no DESC " +
+                    "ON CONFLICT (author_id) DO UPDATE SET author_name = EXCLUDED.author_name, " +
+                    "version = authors.version + 1, updated_at = now()";
+        }
+
+        @Override
+        public String fallbackSql() {
+            return "MERGE INTO authors (author_id, author_name, version, updated_at) KEY (author_id) " +
+                    "VALUES (?, ?, COALESCE((SELECT version + 1 FROM authors WHERE author_id = ?), 1), CURRENT_TIMESTAMP)";
+        }
+
+        @Override
+        public String backfillSql() {
+            //Books imported before their author carry a null author_id; only those are looked at, so books
+            //already linked keep their author even when the import renames it
+            return "UPDATE books SET author_id = (SELECT MIN(a.author_id) FROM authors a WHERE a.author_name = books.book_author), " +
+                    "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+                    "WHERE author_id IS NULL AND EXISTS (SELECT 1 FROM authors a WHERE a.author_name = books.book_author)";
+        }
+    }
+}
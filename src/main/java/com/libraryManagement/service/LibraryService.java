@@ -1,80 +1,360 @@
 package com.libraryManagement.service;
 
+import com.libraryManagement.cache.AuthorDirectory;
+import com.libraryManagement.cache.LibraryCache;
+import com.libraryManagement.cache.SingleFlight;
 import com.libraryManagement.model.Author;
+import com.libraryManagement.model.BatchItemResult;
 import com.libraryManagement.model.Book;
+import com.libraryManagement.model.LookupResult;
+import com.libraryManagement.model.Page;
+import com.libraryManagement.model.RowVersion;
 import com.libraryManagement.repository.AuthorRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import com.libraryManagement.repository.BookFilter;
 import com.libraryManagement.repository.BookRepository;
+import com.libraryManagement.repository.FieldProjection;
+import com.libraryManagement.routing.ReadRouting;
+import com.libraryManagement.routing.ReplicaRead;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.LinkedCaseInsensitiveMap;
 
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
+@Timed(value = "library.service", description = "Latency of the service methods", histogram = true)
 public class LibraryService {
+    private static final Logger logger = LoggerFactory.getLogger(LibraryService.class);
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 1000;
+    public static final int MAX_LOOKUP_SIZE = 1000;
+    public static final int MAX_SEARCH_TERMS = 10;
+    public static final int DEFAULT_SUGGESTIONS = 10;
+    public static final int MAX_SUGGESTIONS = 50;
+
     private final BookRepository bookRepository;
     private final AuthorRepository authorRepository;
     private final JdbcTemplate jdbcTemplate;
-    public LibraryService(BookRepository bookRepository, AuthorRepository authorRepository, JdbcTemplate jdbcTemplate) {
+    private final LibraryCache libraryCache;
+    private final AuthorDirectory authorDirectory;
+    private final boolean inMemoryJoin;
+    //Concurrent identical reads share one query; getBook and getAuthor need none, the cache loads each key once
+    private final SingleFlight<String, List<Book>> allBooksFlights = new SingleFlight<>();
+    private final SingleFlight<String, List<Author>> allAuthorsFlights = new SingleFlight<>();
+    private final SingleFlight<String, Optional<RowVersion>> bookVersionFlights = new SingleFlight<>();
+    private final SingleFlight<String, Optional<RowVersion>> authorVersionFlights = new SingleFlight<>();
+    public LibraryService(BookRepository bookRepository, AuthorRepository authorRepository, JdbcTemplate jdbcTemplate,
+                          LibraryCache libraryCache, AuthorDirectory authorDirectory,
+                          @Value("${library.books-join-authors.in-memory:true}") boolean inMemoryJoin) {
         this.bookRepository = bookRepository;
         this.authorRepository = authorRepository;
         this.jdbcTemplate = jdbcTemplate;
+        this.libraryCache = libraryCache;
+        this.authorDirectory = authorDirectory;
+        this.inMemoryJoin = inMemoryJoin;
     }
 
+    @Transactional
     public boolean createAuthor(Author author) {
-        Optional<Author> newAuthor = getAuthor(author.getAuthorId());
-        if(newAuthor.isPresent()) {
-            return false;
-        } else {
-            authorRepository.createAuthor(author);
-            return true;
+        //A single INSERT ... ON CONFLICT DO NOTHING, no existence check beforehand
+        libraryCache.invalidateAuthor(author.getAuthorId());
+        boolean isCreated = authorRepository.createAuthor(author);
+        if (isCreated) {
+            authorDirectory.authorWritten(author);
+            linkBooks(List.of(author));
+        }
+        return isCreated;
+    }
+
+    @Transactional
+    public List<BatchItemResult> createAuthors(List<Author> authors) {
+        validateBatchSize(authors);
+        BatchItemResult[] results = new BatchItemResult[authors.size()];
+        List<Integer> candidates = new ArrayList<>();
+        Set<String> seenIds = new HashSet<>();
+        for (int i = 0; i < authors.size(); i++) {
+            Author author = authors.get(i);
+            String authorId = author == null ? null : author.getAuthorId();
+            if (author == null || authorId == null || authorId.isEmpty()) {
+                results[i] = new BatchItemResult(authorId, BatchItemResult.Status.INVALID, "Error: Author ID is required as authorId and it cannot be null or empty");
+            } else if (author.getAuthorName() == null || author.getAuthorName().isEmpty()) {
+                results[i] = new BatchItemResult(authorId, BatchItemResult.Status.INVALID, "Error: Author Name is required as authorName and it cannot be null or empty");
+            } else if (!seenIds.add(authorId)) {
+                results[i] = new BatchItemResult(authorId, BatchItemResult.Status.CONFLICT, "Author appears more than once in the batch");
+            } else {
+                candidates.add(i);
+            }
+        }
+        //One query for all the existence checks instead of one per author
+        Set<String> existingIds = authorRepository.findExistingAuthorIds(seenIds);
+        List<Author> toInsert = new ArrayList<>();
+        List<Integer> insertIndexes = new ArrayList<>();
+        for (int i : candidates) {
+            String authorId = authors.get(i).getAuthorId();
+            if (existingIds.contains(authorId)) {
+                results[i] = new BatchItemResult(authorId, BatchItemResult.Status.CONFLICT, "Author already exist");
+            } else {
+                toInsert.add(authors.get(i));
+                insertIndexes.add(i);
+            }
+        }
+        if (!toInsert.isEmpty()) {
+            libraryCache.invalidateAuthors(toInsert.stream().map(Author::getAuthorId).toList());
+            int[] counts = authorRepository.createAuthors(toInsert);
+            authorDirectory.invalidate();
+            List<Author> created = new ArrayList<>();
+            for (int j = 0; j < counts.length; j++) {
+                int i = insertIndexes.get(j);
+                results[i] = batchInsertResult(authors.get(i).getAuthorId(), counts[j], "Author already exist");
+                //linkBooksToAuthor checks the stored name, so an author that lost a race is left alone
+                if (results[i].getStatus() != BatchItemResult.Status.CONFLICT) {
+                    created.add(authors.get(i));
+                }
+            }
+            linkBooks(created);
         }
+        return Arrays.asList(results);
     }
 
+    //Books written before their author existed carry no author_id yet
+    private void linkBooks(List<Author> authors) {
+        int linked = 0;
+        for (Author author : authors) {
+            linked += bookRepository.linkBooksToAuthor(author.getAuthorId(), author.getAuthorName());
+        }
+        if (linked > 0) {
+            libraryCache.invalidateAllBooks();
+        }
+    }
+
+    @Transactional
     public boolean updateAuthor(Author author) {
-        Optional<Author> updatingAuthor = getAuthor(author.getAuthorId());
-        //Checking while the author to be updated exists or not
-        if(updatingAuthor.isPresent()) {
-            authorRepository.updateAuthor(author);
+        //The affected row count tells whether the author existed
+        libraryCache.invalidateAuthor(author.getAuthorId());
+        boolean isUpdated = authorRepository.updateAuthor(author);
+        if (isUpdated) {
+            authorDirectory.authorWritten(author);
+            relinkBooks(author);
+        }
+        return isUpdated;
+    }
+
+    //Updating the author only if it still has the version the client read (If-Match), false when it does not exist
+    @Transactional
+    public boolean updateAuthor(Author author, RowVersion expected) {
+        libraryCache.invalidateAuthor(author.getAuthorId());
+        if (authorRepository.updateAuthor(author, expected)) {
+            authorDirectory.authorWritten(author);
+            relinkBooks(author);
             return true;
         }
+        if (authorRepository.getAuthorVersion(author.getAuthorId()).isPresent()) {
+            throw new OptimisticLockingFailureException("Author " + author.getAuthorId() + " was changed by another request");
+        }
         return false;
     }
 
+    //A rename moves the author's books along with it: books still carrying the old name are unlinked and the ones
+    //written under the new name are linked, so author_id keeps agreeing with book_author
+    private void relinkBooks(Author author) {
+        int unlinked = bookRepository.unlinkBooksNotNamed(author.getAuthorId(), author.getAuthorName());
+        int linked = bookRepository.linkBooksToAuthor(author.getAuthorId(), author.getAuthorName());
+        if (unlinked + linked > 0) {
+            libraryCache.invalidateAllBooks();
+        }
+    }
+
+    @Transactional
     public boolean deleteAuthor(String authorId) {
-        //Checking while the author to be deleted exists or not
-        Optional<Author> deletingAuthor = getAuthor(authorId);
-        if(deletingAuthor.isPresent()) {
-            authorRepository.deleteAuthor(authorId);
-            return true;
+        //Unlinking first gives the author's books a new version, the foreign key alone would clear author_id silently
+        libraryCache.invalidateAuthor(authorId);
+        int unlinked = bookRepository.unlinkBooksFromAuthor(authorId);
+        //The affected row count tells whether the author existed
+        boolean isDeleted = authorRepository.deleteAuthor(authorId);
+        if (isDeleted) {
+            authorDirectory.authorDeleted(authorId);
         }
-        return false;
+        if (unlinked > 0) {
+            libraryCache.invalidateAllBooks();
+        }
+        return isDeleted;
+    }
+
+    //The version of the author as it would be served, from the cache when it holds the author
+    public Optional<RowVersion> getAuthorVersion(String authorId) {
+        Optional<Author> cached = libraryCache.peekAuthor(authorId);
+        if (cached != null) {
+            return cached.map(Author::rowVersion);
+        }
+        return coalesce(authorVersionFlights, authorId, () -> authorRepository.getAuthorVersion(authorId));
     }
 
     public Optional<Author> getAuthor(String authorId) {
-        //Get the author by its author ID
-        return authorRepository.getAuthor(authorId);
+        //Get the author by its author ID, served from the cache when possible
+        return libraryCache.getAuthor(authorId);
     }
 
+    //Resolving many author IDs with one query, a result per distinct ID in the caller's order
+    @ReplicaRead
+    public List<LookupResult<Author>> lookupAuthors(List<String> authorIds) {
+        List<String> ids = distinctLookupIds(authorIds);
+        Map<String, Author> found = new HashMap<>();
+        for (Author author : authorRepository.getAuthorsByIds(ids)) {
+            found.put(author.getAuthorId(), author);
+        }
+        return lookupResults(ids, found);
+    }
+
+    @ReplicaRead
     public List<Author> getAllAuthors() {
-        //Getting all the authors
-        return authorRepository.getAllAuthor();
+        //Getting all the authors, one query for all the callers asking at the same time
+        return coalesce(allAuthorsFlights, "all", () -> Collections.unmodifiableList(authorRepository.getAllAuthor()));
+    }
+
+    @ReplicaRead
+    @Transactional(readOnly = true)
+    public void streamAllAuthors(Consumer<Author> consumer) {
+        //The read-only transaction keeps autocommit off so the driver honours the fetch size
+        authorRepository.streamAllAuthors(consumer);
+    }
+
+    public List<Author> suggestAuthors(String prefix, Integer limit) {
+        //Answered from the in-memory author snapshot, no database access
+        if (prefix == null || prefix.isBlank()) {
+            throw new IllegalArgumentException("Error: prefix is required and it cannot be null or empty");
+        }
+        int suggestionLimit = limit == null ? DEFAULT_SUGGESTIONS : limit;
+        if (suggestionLimit <= 0) {
+            throw new IllegalArgumentException("Error: limit must be greater than zero");
+        }
+        return authorDirectory.snapshot().suggest(prefix.strip(), Math.min(suggestionLimit, MAX_SUGGESTIONS));
+    }
+
+    @ReplicaRead
+    public Page<Author> getAuthorsPage(String after, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        List<Author> authors = authorRepository.getAuthorsPage(Page.decodeCursor(after), pageSize + 1);
+        return toPage(authors, pageSize, Author::getAuthorId);
     }
 
+    @ReplicaRead
+    public Optional<Map<String, Object>> getAuthorFields(String authorId, String fields) {
+        //Only the requested columns are selected, so the cache is bypassed
+        return authorRepository.getAuthorFields(authorId, FieldProjection.forAuthors(fields));
+    }
+
+    @ReplicaRead
+    public Page<Map<String, Object>> getAuthorsPage(String after, Integer limit, String fields) {
+        FieldProjection projection = FieldProjection.forAuthors(fields);
+        int pageSize = resolvePageSize(limit);
+        List<Map<String, Object>> authors = authorRepository.getAuthorsPage(Page.decodeCursor(after), pageSize + 1, projection);
+        return toPage(authors, pageSize, author -> (String) author.get("authorId"));
+    }
+
+    @Transactional
     public boolean createBook(Book book) {
         //Validating while the book to be created contains all the required field or not
         validateBook(book);
-        Optional<Book> newBook = getBook(book.getBookId());
-        if(newBook.isPresent()) {
-            return false;
-        } else {
-            bookRepository.createBook(book);
-            return true;
+        //A single INSERT ... ON CONFLICT DO NOTHING, no existence check beforehand
+        libraryCache.invalidateBook(book.getBookId());
+        return bookRepository.createBook(book);
+    }
+
+    @Transactional
+    public List<BatchItemResult> createBooks(List<Book> books) {
+        validateBatchSize(books);
+        BatchItemResult[] results = new BatchItemResult[books.size()];
+        List<Integer> candidates = new ArrayList<>();
+        Set<String> seenIds = new HashSet<>();
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            String bookId = book == null ? null : book.getBookId();
+            try {
+                if (book == null) {
+                    throw new IllegalArgumentException("Error: Book is required and it cannot be null");
+                }
+                //Applying the same rules as the single book path
+                validateBook(book);
+            } catch (IllegalArgumentException e) {
+                results[i] = new BatchItemResult(bookId, BatchItemResult.Status.INVALID, e.getMessage());
+                continue;
+            }
+            if (!seenIds.add(bookId)) {
+                results[i] = new BatchItemResult(bookId, BatchItemResult.Status.CONFLICT, "Book appears more than once in the batch");
+            } else {
+                candidates.add(i);
+            }
+        }
+        //One query for all the existence checks instead of one getBook per book
+        Set<String> existingIds = bookRepository.findExistingBookIds(seenIds);
+        List<Book> toInsert = new ArrayList<>();
+        List<Integer> insertIndexes = new ArrayList<>();
+        for (int i : candidates) {
+            String bookId = books.get(i).getBookId();
+            if (existingIds.contains(bookId)) {
+                results[i] = new BatchItemResult(bookId, BatchItemResult.Status.CONFLICT, "Book already exist");
+            } else {
+                toInsert.add(books.get(i));
+                insertIndexes.add(i);
+            }
+        }
+        if (!toInsert.isEmpty()) {
+            libraryCache.invalidateBooks(toInsert.stream().map(Book::getBookId).toList());
+            int[] counts = bookRepository.createBooks(toInsert);
+            for (int j = 0; j < counts.length; j++) {
+                int i = insertIndexes.get(j);
+                results[i] = batchInsertResult(books.get(i).getBookId(), counts[j], "Book already exist");
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private BatchItemResult batchInsertResult(String id, int count, String conflictMessage) {
+        //A zero count means ON CONFLICT skipped the row; reWriteBatchedInserts only reports SUCCESS_NO_INFO
+        if (count == 0) {
+            return new BatchItemResult(id, BatchItemResult.Status.CONFLICT, conflictMessage);
+        }
+        if (count == Statement.SUCCESS_NO_INFO) {
+            return new BatchItemResult(id, BatchItemResult.Status.UNKNOWN, "Inserted unless it already existed");
+        }
+        return new BatchItemResult(id, BatchItemResult.Status.CREATED, null);
+    }
+
+    private void validateBatchSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Error: Batch is required and it cannot be null or empty");
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Error: Batch cannot contain more than " + MAX_BATCH_SIZE + " items");
         }
     }
 
-    private void validateBook(Book book) {
+    void validateBook(Book book) {
         //Validating the book objects
         if(book.getBookId() == null || book.getBookId().isEmpty()) {
             throw new IllegalArgumentException("Error: Book ID is required as bookId and it cannot be null or empty");
@@ -90,49 +370,277 @@ public class LibraryService {
         }
     }
 
+    @Transactional
     public boolean updateBook(Book book) {
         //Validating while the book to be updated contains all the required field or not
         validateBook(book);
-        //Checking while the book to be updated exists or not
-        Optional<Book> updatingBook = getBook(book.getBookId());
-        if(updatingBook.isPresent()) {
-            bookRepository.updateBook(book);
+        //The affected row count tells whether the book existed
+        libraryCache.invalidateBook(book.getBookId());
+        return bookRepository.updateBook(book);
+    }
+
+    //Updating the book only if it still has the version the client read (If-Match), false when it does not exist
+    @Transactional
+    public boolean updateBook(Book book, RowVersion expected) {
+        validateBook(book);
+        libraryCache.invalidateBook(book.getBookId());
+        if (bookRepository.updateBook(book, expected)) {
             return true;
         }
+        if (bookRepository.getBookVersion(book.getBookId()).isPresent()) {
+            throw new OptimisticLockingFailureException("Book " + book.getBookId() + " was changed by another request");
+        }
         return false;
     }
 
+    @Transactional
     public boolean deleteBook(String bookId) {
-        //Checking while the book to be deleted exists or not
-        Optional<Book> deletingBook = getBook(bookId);
-        if (deletingBook.isPresent()) {
-            bookRepository.deleteBook(bookId);
-            return true;
-        }
-        return false;
+        //The affected row count tells whether the book existed
+        libraryCache.invalidateBook(bookId);
+        return bookRepository.deleteBook(bookId);
     }
 
     public Optional<Book> getBook(String bookId) {
-        return bookRepository.getBook(bookId);
+        //Served from the cache when possible
+        return libraryCache.getBook(bookId);
+    }
+
+    //The version of the book as it would be served, from the cache when it holds the book, else without reading book_detail
+    public Optional<RowVersion> getBookVersion(String bookId) {
+        Optional<Book> cached = libraryCache.peekBook(bookId);
+        if (cached != null) {
+            return cached.map(Book::rowVersion);
+        }
+        return coalesce(bookVersionFlights, bookId, () -> bookRepository.getBookVersion(bookId));
     }
 
+    //Resolving many book IDs with one query, a result per distinct ID in the caller's order
+    @ReplicaRead
+    public List<LookupResult<Book>> lookupBooks(List<String> bookIds) {
+        List<String> ids = distinctLookupIds(bookIds);
+        Map<String, Book> found = new HashMap<>();
+        for (Book book : bookRepository.getBooksByIds(ids)) {
+            found.put(book.getBookId(), book);
+        }
+        return lookupResults(ids, found);
+    }
+
+    //The cap applies to the list as sent, repeated IDs are dropped after their first occurrence
+    private List<String> distinctLookupIds(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Error: ids are required and they cannot be null or empty");
+        }
+        if (ids.size() > MAX_LOOKUP_SIZE) {
+            throw new IllegalArgumentException("Error: Cannot look up more than " + MAX_LOOKUP_SIZE + " ids at once");
+        }
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id == null || id.isBlank()) {
+                throw new IllegalArgumentException("Error: ids cannot contain null or empty values");
+            }
+            distinct.add(id.trim());
+        }
+        return new ArrayList<>(distinct);
+    }
+
+    private static <T> List<LookupResult<T>> lookupResults(List<String> ids, Map<String, T> found) {
+        List<LookupResult<T>> results = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T item = found.get(id);
+            results.add(item == null ? new LookupResult<>(id, LookupResult.Status.NOT_FOUND, null)
+                    : new LookupResult<>(id, LookupResult.Status.FOUND, item));
+        }
+        return results;
+    }
+
+    @ReplicaRead
     public List<Book> getAllBooks() {
-        return bookRepository.getAllBooks();
+        return coalesce(allBooksFlights, "all", () -> Collections.unmodifiableList(bookRepository.getAllBooks()));
+    }
+
+    @ReplicaRead
+    @Transactional(readOnly = true)
+    public void streamAllBooks(Consumer<Book> consumer) {
+        //The read-only transaction keeps autocommit off so the driver honours the fetch size
+        bookRepository.streamAllBooks(consumer);
+    }
+
+    @ReplicaRead
+    public Page<Book> getBooksPage(String after, Integer limit) {
+        return getBooksPage(after, limit, BookFilter.NONE);
+    }
+
+    @ReplicaRead
+    public Page<Book> getBooksPage(String after, Integer limit, BookFilter filter) {
+        int pageSize = resolvePageSize(limit);
+        List<Book> books = bookRepository.getBooksPage(Page.decodeCursor(after), pageSize + 1, filter);
+        return toPage(books, pageSize, Book::getBookId);
+    }
+
+    //The versions of the rows getBooksPage would return, for answering If-None-Match without reading book_detail
+    @ReplicaRead
+    public Page<RowVersion> getBooksPageVersions(String after, Integer limit, BookFilter filter) {
+        int pageSize = resolvePageSize(limit);
+        List<RowVersion> versions = bookRepository.getBooksPageVersions(Page.decodeCursor(after), pageSize + 1, filter);
+        return toPage(versions, pageSize, RowVersion::getId);
+    }
+
+    @ReplicaRead
+    public Optional<Map<String, Object>> getBookFields(String bookId, String fields) {
+        //Only the requested columns and bookDetail keys are selected, so the cache is bypassed
+        return bookRepository.getBookFields(bookId, FieldProjection.forBooks(fields));
+    }
+
+    @ReplicaRead
+    public Page<Map<String, Object>> getBooksPage(String after, Integer limit, BookFilter filter, String fields) {
+        FieldProjection projection = FieldProjection.forBooks(fields);
+        int pageSize = resolvePageSize(limit);
+        List<Map<String, Object>> books = bookRepository.getBooksPage(Page.decodeCursor(after), pageSize + 1, filter, projection);
+        return toPage(books, pageSize, book -> (String) book.get("bookId"));
     }
 
+    @ReplicaRead
+    public Page<Book> getBooksByAuthorPage(String authorId, String after, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        List<Book> books = bookRepository.getBooksByAuthorPage(authorId, Page.decodeCursor(after), pageSize + 1);
+        return toPage(books, pageSize, Book::getBookId);
+    }
+
+    @ReplicaRead
+    public Page<Book> searchBooks(String query, String after, Integer limit) {
+        List<String> terms = searchTerms(query);
+        int pageSize = resolvePageSize(limit);
+        Float afterRank = null;
+        String afterBookId = null;
+        String cursor = Page.decodeCursor(after);
+        if (cursor != null) {
+            //A search cursor carries the rank and the id of the last book of the previous page
+            int separator = cursor.indexOf('|');
+            try {
+                afterRank = Float.valueOf(cursor.substring(0, separator));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Error: Invalid cursor '" + after + "'", e);
+            }
+            afterBookId = cursor.substring(separator + 1);
+        }
+        List<BookRepository.RankedBook> hits = bookRepository.searchBooks(terms, afterRank, afterBookId, pageSize + 1);
+        Page<BookRepository.RankedBook> page = toPage(hits, pageSize, hit -> hit.getRank() + "|" + hit.getBook().getBookId());
+        return new Page<>(page.getItems().stream().map(BookRepository.RankedBook::getBook).toList(), page.getNextCursor());
+    }
+
+    private List<String> searchTerms(String query) {
+        //Only letters and digits survive, so nothing in the query can be read as search syntax
+        List<String> terms = new ArrayList<>();
+        if (query != null) {
+            for (String term : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (!term.isEmpty() && terms.size() < MAX_SEARCH_TERMS) {
+                    terms.add(term);
+                }
+            }
+        }
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Error: Search query q is required and must contain letters or digits");
+        }
+        return terms;
+    }
+
+    private <T> Page<T> toPage(List<T> rows, int pageSize, Function<T, String> key) {
+        //One extra row was fetched, its presence tells whether another page follows without a count query
+        if (rows.size() <= pageSize) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new Page<>(items, Page.encodeCursor(key.apply(items.get(pageSize - 1))));
+    }
+
+    private int resolvePageSize(Integer limit) {
+        //Applying the default page size and capping it on the server side
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Error: limit must be greater than zero");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public List<Map<String, Object>> booksJoinAuthors() {
+        if (inMemoryJoin) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            hashJoinAuthors(rows::add);
+            return rows;
+        }
         String sql = "SELECT b.book_id, a.author_id, b.book_title " +
                 "FROM books b JOIN authors a " +
-                "ON b.book_author = a.author_name";
+                "ON b.author_id = a.author_id";
         return jdbcTemplate.queryForList(sql);
     }
 
+    @ReplicaRead
+    @Transactional(readOnly = true)
+    public void streamBooksJoinAuthors(Consumer<Map<String, Object>> consumer) {
+        if (inMemoryJoin) {
+            hashJoinAuthors(consumer);
+            return;
+        }
+        //Same join as booksJoinAuthors, handed over row by row instead of collected into a list
+        String sql = "SELECT b.book_id, a.author_id, b.book_title " +
+                "FROM books b JOIN authors a " +
+                "ON b.author_id = a.author_id";
+        ColumnMapRowMapper rowMapper = new ColumnMapRowMapper();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(BookRepository.STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            consumer.accept(rowMapper.mapRow(rs, rs.getRow()));
+        });
+    }
+
+    private void hashJoinAuthors(Consumer<Map<String, Object>> consumer) {
+        //Streaming the books and probing the in-memory author snapshot gives the rows of
+        //books JOIN authors ON author_id without the database doing the join
+        AuthorDirectory.Snapshot authors = authorDirectory.snapshot();
+        bookRepository.streamBookSummaries(book -> {
+            Author author = book.getAuthorId() == null ? null : authors.byId(book.getAuthorId());
+            if (author != null) {
+                Map<String, Object> row = new LinkedCaseInsensitiveMap<>(3);
+                row.put("book_id", book.getBookId());
+                row.put("author_id", author.getAuthorId());
+                row.put("book_title", book.getBookTitle());
+                consumer.accept(row);
+            }
+        });
+    }
+
+    public Map<String, Map<String, Object>> cacheStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>(libraryCache.stats());
+        stats.put("getAllBooksFlights", allBooksFlights.stats());
+        stats.put("getAllAuthorsFlights", allAuthorsFlights.stats());
+        stats.put("bookVersionFlights", bookVersionFlights.stats());
+        stats.put("authorVersionFlights", authorVersionFlights.stats());
+        return stats;
+    }
+
+    //A caller inside a transaction, or carrying a consistency token, may need to see its own writes, which a query
+    //started by another caller could miss, so it runs its own
+    private static <K, V> V coalesce(SingleFlight<K, V> flights, K key, Supplier<V> load) {
+        if (TransactionSynchronizationManager.isActualTransactionActive() || ReadRouting.currentToken() != null) {
+            return load.get();
+        }
+        return flights.execute(key, load);
+    }
+
     public int deleteBooksByAuthorName(String authorName) {
         int rowsAffected = bookRepository.deleteBooksByAuthorName(authorName);
         if (rowsAffected > 0) {
-            System.out.println("Deleted " + rowsAffected + " books for author: " + authorName);
+            //The deleted ids are not known here, so every cached book is dropped
+            libraryCache.invalidateAllBooks();
+            logger.info("Deleted {} books for author: {}", rowsAffected, authorName);
         } else {
-            System.out.println("No books found for author: " + authorName);
+            logger.info("No books found for author: {}", authorName);
         }
         return rowsAffected;
     }
@@ -0,0 +1,59 @@
+-- Applied once per release, and on every start-up by the dev profile, so every statement must be idempotent
+create table if not exists books (
+    book_id varchar(50) primary key,
+    book_author varchar(50) not null,
+    book_title varchar(50) not null,
+    book_detail jsonb not null
+);
+
+create table if not exists authors (
+    author_id varchar(10) primary key,
+    author_name varchar(50) not null
+);
+
+-- Serves book_detail @> '{...}' containment filters such as genre
+create index if not exists books_book_detail_gin on books using gin (book_detail jsonb_path_ops);
+
+-- Serves publishing year range filters on book_detail ->> 'publishing year'
+create index if not exists books_publishing_year_idx on books ((book_detail ->> 'publishing year'));
+
+-- Title search vector, kept up to date by PostgreSQL on every insert and update of book_title
+alter table books add column if not exists book_title_tsv tsvector
+    generated always as (to_tsvector('simple', book_title)) stored;
+
+create index if not exists books_book_title_tsv_gin on books using gin (book_title_tsv);
+
+-- Books reference their author by id; author_id is resolved from book_author when a book is written
+alter table books add column if not exists author_id varchar(10) references authors (author_id) on delete set null;
+
+-- Serves the books of one author in book_id order, and the joins on author_id
+create index if not exists books_author_id_book_id_idx on books (author_id, book_id);
+
+-- Serves the author_name lookups that resolve author_id
+create index if not exists authors_author_name_idx on authors (author_name);
+
+-- Row versions behind the ETags: every write bumps version and sets updated_at, inserts start at version 1
+alter table books add column if not exists version bigint not null default 1;
+alter table books add column if not exists updated_at timestamptz not null default now();
+alter table authors add column if not exists version bigint not null default 1;
+alter table authors add column if not exists updated_at timestamptz not null default now();
+
+-- One-off data migrations, recorded so later start-ups skip them
+create table if not exists schema_migrations (
+    migration_id varchar(100) primary key,
+    applied_at timestamptz not null default now()
+);
+
+-- Backfills rows written before the column existed. Runs once: the uncorrelated not exists is a one-time filter,
+-- so once recorded books is not scanned at all. Later books are linked when written and by the authors import
+update books b set author_id = (select min(a.author_id) from authors a where a.author_name = b.book_author),
+    version = b.version + 1, updated_at = now()
+where not exists (select 1 from schema_migrations where migration_id = 'books_author_id_backfill')
+  and b.author_id is null
+  and exists (select 1 from authors a where a.author_name = b.book_author);
+
+insert into schema_migrations (migration_id) values ('books_author_id_backfill') on conflict do nothing;
+
+-- The catalog import stages into temporary tables now; drops the shared staging tables older versions left behind
+drop table if exists books_import_staging;
+drop table if exists authors_import_staging;
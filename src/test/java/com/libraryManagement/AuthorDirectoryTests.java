@@ -0,0 +1,67 @@
+package com.libraryManagement;
+
+import com.libraryManagement.cache.AuthorDirectory;
+import com.libraryManagement.model.Author;
+import com.libraryManagement.repository.AuthorRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class AuthorDirectoryTests {
+    private AuthorRepository authorRepository;
+    private AuthorDirectory authorDirectory;
+    private final Set<String> loadingThreads = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        authorRepository = Mockito.mock(AuthorRepository.class);
+        Mockito.when(authorRepository.getAllAuthor()).thenAnswer(invocation -> {
+            loadingThreads.add(Thread.currentThread().getName());
+            return List.of(new Author("A101", "James Clear"));
+        });
+        authorDirectory = new AuthorDirectory(authorRepository, Mockito.mock(PlatformTransactionManager.class));
+        authorDirectory.warmUp();
+        loadingThreads.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        authorDirectory.destroy();
+    }
+
+    //Readers inside a transaction must not wait for a second connection, so they keep the old snapshot meanwhile
+    @Test
+    void testReloadsInTheBackgroundAfterInvalidate() throws Exception {
+        AuthorDirectory.Snapshot before = authorDirectory.snapshot();
+        Mockito.doAnswer(invocation -> {
+            loadingThreads.add(Thread.currentThread().getName());
+            return List.of(new Author("A101", "James Clear"), new Author("A102", "Robin Sharma"));
+        }).when(authorRepository).getAllAuthor();
+
+        authorDirectory.invalidate();
+        Assertions.assertNotNull(authorDirectory.snapshot());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (authorDirectory.snapshot() == before && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        Assertions.assertEquals(2, authorDirectory.snapshot().size());
+        Assertions.assertEquals(Set.of("author-directory-reload"), loadingThreads);
+    }
+
+    @Test
+    void testPatchesWithoutReadingTheTable() {
+        authorDirectory.authorWritten(new Author("A102", "Robin Sharma"));
+
+        Assertions.assertEquals("Robin Sharma", authorDirectory.snapshot().byId("A102").getAuthorName());
+        Assertions.assertTrue(loadingThreads.isEmpty());
+    }
+}
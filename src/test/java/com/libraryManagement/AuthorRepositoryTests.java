@@ -2,7 +2,6 @@ package com.libraryManagement;
 
 import com.libraryManagement.model.Author;
 import com.libraryManagement.repository.AuthorRepository;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.slf4j.Logger;
@@ -27,7 +26,6 @@ public class AuthorRepositoryTests {
     @Mock
     private JdbcTemplate jdbcTemplate;
 
-    @InjectMocks
     private AuthorRepository authorRepository;
 
     private static final Logger logger = LoggerFactory.getLogger(AuthorRepositoryTests.class);
@@ -35,6 +33,8 @@ public class AuthorRepositoryTests {
     @BeforeMethod
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        //Built per test method, so it holds the fresh mock and not the first method's
+        authorRepository = new AuthorRepository(jdbcTemplate);
     }
 
     @Test(description = "Testing to create a new author")
@@ -49,7 +49,7 @@ public class AuthorRepositoryTests {
         authorRepository.createAuthor(author);
         logger.info("Verifying that jdbcTemplate.update was called with the correct SQL and parameters");
         verify(jdbcTemplate, times(1)).update(
-                "INSERT INTO authors (author_id, author_name) VALUES (?, ?)",
+                "INSERT INTO authors (author_id, author_name) VALUES (?, ?) ON CONFLICT DO NOTHING",
                 author.getAuthorId(), author.getAuthorName());
         logger.info("Mocking jdbcTemplate.query to fetch the created author from the database.");
         when(jdbcTemplate.query(eq("SELECT * FROM authors WHERE author_id = ?"),
@@ -124,7 +124,7 @@ public class AuthorRepositoryTests {
         Author initialAuthor = new Author("A101", "James Clear");
         logger.info("Mocking the creation of the author");
         when(jdbcTemplate.update(
-                eq("INSERT INTO authors (author_id, author_name) VALUES (?, ?)"),
+                eq("INSERT INTO authors (author_id, author_name) VALUES (?, ?) ON CONFLICT DO NOTHING"),
                 eq(initialAuthor.getAuthorId()), eq(initialAuthor.getAuthorName())
         )).thenReturn(1);
         logger.info("Calling the createAuthor method to add the initial author");
@@ -134,7 +134,7 @@ public class AuthorRepositoryTests {
         Author updatedAuthor = new Author("A101", "Robin Sharma");
         logger.info("Mocking the update of the author's name");
         when(jdbcTemplate.update(
-                eq("UPDATE authors SET author_name = ? WHERE author_id = ?"),
+                eq("UPDATE authors SET author_name = ?, version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE author_id = ?"),
                 eq(updatedAuthor.getAuthorName()), eq(updatedAuthor.getAuthorId())
         )).thenReturn(1);
 
@@ -143,7 +143,7 @@ public class AuthorRepositoryTests {
 
         logger.info("Verifying the update of the author's name");
         verify(jdbcTemplate, times(1)).update(
-                eq("UPDATE authors SET author_name = ? WHERE author_id = ?"),
+                eq("UPDATE authors SET author_name = ?, version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE author_id = ?"),
                 eq(updatedAuthor.getAuthorName()), eq(updatedAuthor.getAuthorId()));
 
         logger.info("Mocking retrieval of the updated author");
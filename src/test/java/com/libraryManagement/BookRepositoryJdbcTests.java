@@ -0,0 +1,159 @@
+package com.libraryManagement;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryManagement.jdbc.SlowQuery;
+import com.libraryManagement.jdbc.SlowQueryDataSource;
+import com.libraryManagement.jdbc.SlowQueryLog;
+import com.libraryManagement.model.Author;
+import com.libraryManagement.model.Book;
+import com.libraryManagement.model.RowVersion;
+import com.libraryManagement.repository.AuthorRepository;
+import com.libraryManagement.repository.BookFilter;
+import com.libraryManagement.repository.BookRepository;
+import com.libraryManagement.repository.FieldProjection;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+//BookRepository against its own in-memory H2 database with the test schema and seed data.
+//Every statement is recorded by a SlowQueryLog with a zero threshold, so the tests can check the SQL that ran.
+//Queries using PostgreSQL-only jsonb operators, which H2 cannot run, are checked against a mocked JdbcTemplate.
+public class BookRepositoryJdbcTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private SlowQueryLog statements;
+    private BookRepository bookRepository;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:books_" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql")).execute(dataSource);
+        statements = new SlowQueryLog(true, Duration.ZERO, false, Duration.ofSeconds(30), 10);
+        jdbcTemplate = new JdbcTemplate(new SlowQueryDataSource(dataSource, statements));
+        bookRepository = new BookRepository(jdbcTemplate);
+    }
+
+    private String lastStatement() {
+        List<SlowQuery> recent = statements.recent();
+        Assertions.assertFalse(recent.isEmpty());
+        return recent.get(0).getSql();
+    }
+
+    @Test
+    void testStreamBookSummariesReadsOnlyTheSummaryColumns() {
+        List<Book> books = new ArrayList<>();
+        bookRepository.streamBookSummaries(books::add);
+
+        Assertions.assertEquals(5, books.size());
+        Assertions.assertNull(books.get(0).getBookDetailJson());
+        //book_detail is neither selected nor shipped for the in-memory join
+        Assertions.assertEquals("SELECT book_id, book_author, book_title, author_id FROM books", lastStatement());
+    }
+
+    @Test
+    void testGetBooksPageWithFilter() {
+        JdbcTemplate mockJdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        BookRepository repository = new BookRepository(mockJdbcTemplate);
+        BookFilter filter = BookFilter.of("Self-Help", "2000", "2010", null);
+        String expectedSql = "SELECT * FROM books WHERE book_detail @> ?::jsonb " +
+                "AND book_detail ->> 'publishing year' >= ? AND book_detail ->> 'publishing year' <= ? " +
+                "AND book_id > ? ORDER BY book_id LIMIT ?";
+        Mockito.when(mockJdbcTemplate.query(eq(expectedSql), any(RowMapper.class),
+                eq("{\"genre\":\"Self-Help\"}"), eq("2000"), eq("2010"), eq("B101"), eq(10)))
+                .thenReturn(Collections.emptyList());
+
+        List<Book> books = repository.getBooksPage("B101", 10, filter);
+
+        //The filter is pushed into the page query, ahead of the keyset predicate
+        Mockito.verify(mockJdbcTemplate).query(eq(expectedSql), any(RowMapper.class),
+                eq("{\"genre\":\"Self-Help\"}"), eq("2000"), eq("2010"), eq("B101"), eq(10));
+        Assertions.assertTrue(books.isEmpty());
+    }
+
+    //Only the requested bookDetail key is selected and returned, never the rest of the document
+    @Test
+    void testGetBookFieldsWithNestedDetailKey() throws Exception {
+        JdbcTemplate mockJdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        BookRepository repository = new BookRepository(mockJdbcTemplate);
+        String expectedSql = "SELECT book_id AS f0, book_detail -> ? AS f1 FROM books WHERE book_id = ?";
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        Mockito.when(rs.getString("f0")).thenReturn("B101");
+        Mockito.when(rs.getString("f1")).thenReturn("\"Self-Help\"");
+        Mockito.doAnswer(invocation -> List.of(invocation.<RowMapper<?>>getArgument(1).mapRow(rs, 0)))
+                .when(mockJdbcTemplate).query(eq(expectedSql), any(RowMapper.class), eq("genre"), eq("B101"));
+
+        Map<String, Object> book = repository.getBookFields("B101", FieldProjection.forBooks("bookDetail.genre")).orElseThrow();
+
+        Assertions.assertEquals("{\"bookId\":\"B101\",\"bookDetail\":{\"genre\":\"Self-Help\"}}",
+                new ObjectMapper().writeValueAsString(book));
+    }
+
+    @Test
+    void testUpdateBookBumpsVersion() {
+        RowVersion before = bookRepository.getBookVersion("B102").orElseThrow();
+        Book book = bookRepository.getBook("B102").orElseThrow();
+        book.setBookTitle("The Alchemist, Revised");
+
+        Assertions.assertTrue(bookRepository.updateBook(book));
+
+        RowVersion after = bookRepository.getBookVersion("B102").orElseThrow();
+        Assertions.assertEquals(before.getVersion() + 1, after.getVersion());
+        Assertions.assertNotEquals(before.etag(), after.etag());
+        Assertions.assertEquals(after.etag(), bookRepository.getBook("B102").orElseThrow().rowVersion().etag());
+    }
+
+    //The If-Match path: only the version the client read can be updated, a stale one changes nothing
+    @Test
+    void testConditionalUpdateBookRejectsStaleVersion() {
+        RowVersion read = bookRepository.getBookVersion("B103").orElseThrow();
+        Book book = bookRepository.getBook("B103").orElseThrow();
+        book.setBookTitle("Eat That Frog, Again");
+
+        Assertions.assertTrue(bookRepository.updateBook(book, read));
+        Assertions.assertFalse(bookRepository.updateBook(book, read));
+        Assertions.assertFalse(bookRepository.updateBook(book, RowVersion.fromEtag("B103", read.etag())));
+
+        RowVersion current = bookRepository.getBookVersion("B103").orElseThrow();
+        Assertions.assertEquals(read.getVersion() + 1, current.getVersion());
+        Assertions.assertTrue(bookRepository.updateBook(book, RowVersion.fromEtag("B103", current.etag())));
+    }
+
+    @Test
+    void testLinkBooksToAuthorChecksTheStoredName() {
+        jdbcTemplate.update("INSERT INTO books (book_id, book_author, book_title, book_detail) VALUES ('B601', 'Ryan Holiday', 'Ego Is the Enemy', '{}')");
+
+        Assertions.assertEquals(0, bookRepository.linkBooksToAuthor("A101", "Ryan Holiday"));
+        jdbcTemplate.update("INSERT INTO authors (author_id, author_name) VALUES ('A601', 'Ryan Holiday')");
+        Assertions.assertEquals(1, bookRepository.linkBooksToAuthor("A601", "Ryan Holiday"));
+    }
+
+    @Test
+    void testUpdateAuthorBumpsVersion() {
+        AuthorRepository authorRepository = new AuthorRepository(jdbcTemplate);
+        RowVersion read = authorRepository.getAuthorVersion("A101").orElseThrow();
+        Author author = new Author("A101", "James Clear");
+
+        Assertions.assertTrue(authorRepository.updateAuthor(author, read));
+        Assertions.assertFalse(authorRepository.updateAuthor(author, read));
+        Assertions.assertEquals(read.getVersion() + 1, authorRepository.getAuthorVersion("A101").orElseThrow().getVersion());
+    }
+}
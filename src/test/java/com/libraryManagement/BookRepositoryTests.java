@@ -5,7 +5,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.libraryManagement.model.Author;
 import com.libraryManagement.model.Book;
 import com.libraryManagement.repository.BookRepository;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.slf4j.Logger;
@@ -27,7 +26,6 @@ public class BookRepositoryTests {
     @Mock
     private JdbcTemplate jdbcTemplate;
 
-    @InjectMocks
     private BookRepository bookRepository;
 
     private static final Logger logger = LoggerFactory.getLogger(BookRepositoryTests.class);
@@ -35,6 +33,8 @@ public class BookRepositoryTests {
     @BeforeMethod
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        //Built per test method, so it holds the fresh mock and not the first method's
+        bookRepository = new BookRepository(jdbcTemplate);
     }
 
     @Test (description = "Test to create book")
@@ -52,8 +52,9 @@ public class BookRepositoryTests {
         bookRepository.createBook(newBook);
         logger.info("Verifying that jdbcTemplate.update was called with the correct SQL and parameters");
         verify(jdbcTemplate, times(1)).update(
-                "INSERT INTO books(book_id, book_author, book_title, book_detail) VALUES (?, ?, ?, ?::jsonb)",
-                newBook.getBookId(), newBook.getBookAuthor(), newBook.getBookTitle(), bookDetailJson);
+                "INSERT INTO books(book_id, book_author, book_title, book_detail, author_id) " +
+                        "VALUES (?, ?, ?, ?::jsonb, (SELECT MIN(author_id) FROM authors WHERE author_name = ?)) ON CONFLICT DO NOTHING",
+                newBook.getBookId(), newBook.getBookAuthor(), newBook.getBookTitle(), bookDetailJson, newBook.getBookAuthor());
         logger.info("Mocking jdbcTemplate.query to fetch the created book from the database");
         when(jdbcTemplate.query(eq("SELECT * FROM books WHERE book_id = ?"),
                 any(RowMapper.class), eq(newBook.getBookId())))
@@ -105,8 +106,11 @@ public class BookRepositoryTests {
 
         logger.info("Mocking the update query");
         when(jdbcTemplate.update(
-                eq("UPDATE books SET book_author = ?, book_title = ?, book_detail = ?::jsonb WHERE book_id = ?"),
-                eq(updatedBook.getBookAuthor()), eq(updatedBook.getBookTitle()), eq(updatedBook.getBookDetail()), eq(updatedBook.getBookId())))
+                eq("UPDATE books SET book_author = ?, book_title = ?, book_detail = ?::jsonb, " +
+                        "author_id = (SELECT MIN(author_id) FROM authors WHERE author_name = ?), " +
+                        "version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE book_id = ?"),
+                eq(updatedBook.getBookAuthor()), eq(updatedBook.getBookTitle()), eq(updatedBook.getBookDetail().toString()),
+                eq(updatedBook.getBookAuthor()), eq(updatedBook.getBookId())))
                 .thenReturn(1);
 
         logger.info("Updated the book details for book ID {}", updatedBook.getBookId());
@@ -120,8 +124,11 @@ public class BookRepositoryTests {
         bookRepository.updateBook(updatedBook);
 
         verify(jdbcTemplate, times(1)).update(
-                "UPDATE books SET book_author = ?, book_title = ?, book_detail = ?::jsonb WHERE book_id = ?",
-                updatedBook.getBookAuthor(), updatedBook.getBookTitle(), updatedBook.getBookDetail(), updatedBook.getBookId());
+                "UPDATE books SET book_author = ?, book_title = ?, book_detail = ?::jsonb, " +
+                        "author_id = (SELECT MIN(author_id) FROM authors WHERE author_name = ?), " +
+                        "version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE book_id = ?",
+                updatedBook.getBookAuthor(), updatedBook.getBookTitle(), updatedBook.getBookDetail().toString(),
+                updatedBook.getBookAuthor(), updatedBook.getBookId());
         logger.info("Verified that update query was executed with correct parameters");
 
         List<Book> result = jdbcTemplate.query(
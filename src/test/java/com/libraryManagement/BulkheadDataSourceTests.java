@@ -0,0 +1,151 @@
+package com.libraryManagement;
+
+import com.libraryManagement.jdbc.BulkheadDataSource;
+import com.libraryManagement.jdbc.BulkheadDataSourcePostProcessor;
+import com.libraryManagement.routing.ReplicaRead;
+import com.libraryManagement.routing.ReplicaReadAspect;
+import com.libraryManagement.routing.ReplicaRoutingDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BulkheadDataSourceTests {
+
+    public static class ReplicaReader {
+        @ReplicaRead
+        public <T> T read(Callable<T> read) throws Exception {
+            return read.call();
+        }
+    }
+
+    //Counts the connections open at the same time, and the most there ever were
+    private static class CountingDataSource extends DelegatingDataSource {
+        private final AtomicInteger open = new AtomicInteger();
+        private final AtomicInteger maxOpen = new AtomicInteger();
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+            AtomicInteger closed = new AtomicInteger();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("close") && closed.getAndIncrement() == 0) {
+                            open.decrementAndGet();
+                        }
+                        return method.invoke(connection, args);
+                    });
+        }
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+
+    private BulkheadDataSource bulkhead(String database, int permits) {
+        return new BulkheadDataSource(database(database), permits, Duration.ofMillis(50));
+    }
+
+    @Test
+    void testTimesOutWhenAllPermitsAreTaken() throws SQLException {
+        BulkheadDataSource bulkhead = bulkhead("bulkhead_timeout", 1);
+        try (Connection connection = bulkhead.getConnection()) {
+            Assertions.assertTrue(connection.isValid(1));
+            Assertions.assertEquals(0, bulkhead.getAvailablePermits());
+            Assertions.assertThrows(SQLTransientConnectionException.class, bulkhead::getConnection);
+        }
+        //The permit came back with the close, so the next caller gets a connection
+        try (Connection connection = bulkhead.getConnection()) {
+            Assertions.assertTrue(connection.isValid(1));
+        }
+        Assertions.assertEquals(1, bulkhead.getAvailablePermits());
+    }
+
+    @Test
+    void testClosingTwiceReleasesOnePermit() throws SQLException {
+        BulkheadDataSource bulkhead = bulkhead("bulkhead_close", 2);
+        Connection connection = bulkhead.getConnection();
+        connection.close();
+        connection.close();
+
+        Assertions.assertEquals(2, bulkhead.getAvailablePermits());
+    }
+
+    //Each pool behind the routing has permits of its own, a replica connection does not use up the primary's
+    @Test
+    void testReplicaPoolsGetBulkheadsOfTheirOwn() throws Exception {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(database("bulkhead_primary"),
+                List.of(database("bulkhead_replica")), Duration.ofMinutes(1), ReplicaRoutingDataSource.Consistency.PIN, Duration.ZERO);
+        ReplicaRoutingDataSource routed = (ReplicaRoutingDataSource) new BulkheadDataSourcePostProcessor(true, 1,
+                Duration.ofMillis(50)).postProcessAfterInitialization(routing, "dataSource");
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new ReplicaReader());
+        proxyFactory.addAspect(new ReplicaReadAspect());
+        ReplicaReader reader = proxyFactory.getProxy();
+
+        try (Connection replica = reader.read(routed::getConnection)) {
+            BulkheadDataSource replicaBulkhead = (BulkheadDataSource) routed.lastTarget();
+            try (Connection primary = routed.getConnection()) {
+                BulkheadDataSource primaryBulkhead = (BulkheadDataSource) routed.lastTarget();
+                Assertions.assertNotSame(replicaBulkhead, primaryBulkhead);
+                Assertions.assertEquals(0, replicaBulkhead.getAvailablePermits());
+                Assertions.assertEquals(0, primaryBulkhead.getAvailablePermits());
+                Assertions.assertThrows(SQLTransientConnectionException.class, routed::getConnection);
+            }
+        }
+    }
+
+    //Many more callers than permits, as with request handling on virtual threads: the pool never sees more
+    //connections open than there are permits, and every caller gets one within the acquire timeout
+    @Test
+    void testStaysWithinThePermitsUnderLoad() throws Exception {
+        CountingDataSource pool = new CountingDataSource(database("bulkhead_load"));
+        BulkheadDataSource bulkhead = new BulkheadDataSource(pool, 4, Duration.ofSeconds(10));
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        try {
+            List<Future<?>> callers = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                callers.add(executor.submit(() -> {
+                    for (int j = 0; j < 20; j++) {
+                        try (Connection connection = bulkhead.getConnection()) {
+                            connection.isValid(1);
+                            Thread.sleep(1);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> caller : callers) {
+                caller.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(4, pool.maxOpen.get());
+        Assertions.assertEquals(0, pool.open.get());
+        Assertions.assertEquals(4, bulkhead.getAvailablePermits());
+    }
+}
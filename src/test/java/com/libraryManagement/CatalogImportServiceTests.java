@@ -0,0 +1,124 @@
+package com.libraryManagement;
+
+import com.libraryManagement.model.Book;
+import com.libraryManagement.model.ImportResult;
+import com.libraryManagement.service.CatalogImportService;
+import com.libraryManagement.service.LibraryService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class CatalogImportServiceTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportServiceTests.class);
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @Autowired
+    private LibraryService libraryService;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testImportBooksFromCsv() throws Exception {
+        Path file = tempDir.resolve("books.csv");
+        Files.write(file, List.of(
+                "book_id,book_author,book_title,book_detail",
+                "B301,Robin Sharma,\"The 5 AM Club\",\"{\"\"genre\"\": \"\"Self-Help\"\"}\"",
+                "B302,Robin Sharma,,\"{\"\"genre\"\": \"\"Self-Help\"\"}\"",
+                "B303,\"Sharma, Robin\",The Monk Who Sold His Ferrari,\"{\"\"genre\"\": \"\"Fable\"\"}\""));
+        logger.info("Attempting to import books from {}", file);
+        ImportResult result = catalogImportService.importBooks(file);
+
+        Assertions.assertEquals(3, result.getRowsRead());
+        Assertions.assertEquals(1, result.getRowsRejected());
+        Assertions.assertEquals(2, result.getRowsMerged());
+        Optional<Book> imported = libraryService.getBook("B303");
+        Assertions.assertTrue(imported.isPresent());
+        Assertions.assertEquals("Sharma, Robin", imported.get().getBookAuthor());
+        Assertions.assertTrue(libraryService.getBook("B302").isEmpty());
+
+        libraryService.deleteBook("B301");
+        libraryService.deleteBook("B303");
+        logger.info("Books import test passed");
+    }
+
+    @Test
+    void testImportBooksWithQuotedLineBreaks() throws Exception {
+        Path file = tempDir.resolve("books.csv");
+        Files.write(file, List.of(
+                "book_id,book_author,book_title,book_detail",
+                "B305,Robin Sharma,The 5 AM Club,\"{",
+                "  \"\"genre\"\": \"\"Self-Help\"\"",
+                "}\"",
+                "B306,Robin Sharma,The Monk Who Sold His Ferrari,\"{\"\"genre\"\": \"\"Fable\"\"}\""));
+        logger.info("Attempting to import books with a book_detail spanning lines from {}", file);
+        ImportResult result = catalogImportService.importBooks(file);
+        try {
+            Assertions.assertEquals(2, result.getRowsRead());
+            Assertions.assertEquals(0, result.getRowsRejected());
+            Assertions.assertEquals(2, result.getRowsMerged());
+            Assertions.assertTrue(libraryService.getBook("B305").orElseThrow().getBookDetail().toString().contains("Self-Help"));
+        } finally {
+            libraryService.deleteBook("B305");
+            libraryService.deleteBook("B306");
+        }
+    }
+
+    @Test
+    void testImportAuthorsFromNdjson() throws Exception {
+        Path file = tempDir.resolve("authors.ndjson");
+        Files.write(file, List.of(
+                "{\"authorId\": \"A301\", \"authorName\": \"Robin Sharma\"}",
+                "{\"authorId\": \"A302\"}",
+                "not json"));
+        logger.info("Attempting to import authors from {}", file);
+        ImportResult result = catalogImportService.importAuthors(file);
+
+        Assertions.assertEquals(3, result.getRowsRead());
+        Assertions.assertEquals(2, result.getRowsRejected());
+        Assertions.assertEquals(1, result.getRowsMerged());
+        Assertions.assertTrue(libraryService.getAuthor("A301").isPresent());
+
+        libraryService.deleteAuthor("A301");
+        logger.info("Authors import test passed");
+    }
+
+    @Test
+    void testImportAuthorsBackfillsBookAuthorIds() throws Exception {
+        Path books = tempDir.resolve("books.csv");
+        Files.write(books, List.of(
+                "B304,Ryan Holiday,The Obstacle Is the Way,\"{\"\"genre\"\": \"\"Philosophy\"\"}\""));
+        catalogImportService.importBooks(books);
+        try {
+            Assertions.assertNull(libraryService.getBook("B304").orElseThrow().getAuthorId());
+
+            Path authors = tempDir.resolve("authors.csv");
+            Files.write(authors, List.of("author_id,author_name", "A304,Ryan Holiday"));
+            logger.info("Attempting to import the author of B304 from {}", authors);
+            catalogImportService.importAuthors(authors);
+
+            Assertions.assertEquals("A304", libraryService.getBook("B304").orElseThrow().getAuthorId());
+        } finally {
+            libraryService.deleteBook("B304");
+            libraryService.deleteAuthor("A304");
+        }
+        logger.info("Author backfill test passed");
+    }
+}
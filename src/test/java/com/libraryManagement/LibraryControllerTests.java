@@ -1,9 +1,22 @@
 package com.libraryManagement;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.libraryManagement.cache.AuthorDirectory;
+import com.libraryManagement.cache.LibraryCache;
 import com.libraryManagement.model.Author;
+import com.libraryManagement.model.BatchItemResult;
 import com.libraryManagement.model.Book;
+import com.libraryManagement.controller.LibraryController;
+import com.libraryManagement.metrics.LibraryMetrics;
+import com.libraryManagement.repository.AuthorRepository;
+import com.libraryManagement.repository.BookRepository;
 import com.libraryManagement.service.LibraryService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -15,16 +28,27 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
@@ -44,6 +68,12 @@ public class LibraryControllerTests {
 //    @MockBean
     private LibraryService libraryService;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void testGetAuthorDetails() throws Exception {
         String authorId = "A101";
@@ -260,4 +290,452 @@ public class LibraryControllerTests {
                 .andExpect(jsonPath("$", hasSize(5)));
         logger.info("Successfully fetched all the books from the database");
     }
+
+    @Test
+    void testGetAuthorsPage() throws Exception {
+        logger.info("Attempting to fetch the authors two at a time");
+        String nextCursor = mockMvc.perform(get("/library/authors").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].authorId").value("A101"))
+                .andExpect(header().exists(LibraryController.NEXT_CURSOR_HEADER))
+                .andReturn().getResponse().getHeader(LibraryController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/library/authors").param("limit", "2").param("after", nextCursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].authorId").value("A103"));
+        logger.info("Successfully fetched the authors page by page");
+    }
+
+    @Test
+    void testGetBooksPageWithInvalidLimit() throws Exception {
+        logger.info("Attempting to fetch books with an invalid page size");
+        mockMvc.perform(get("/library/books").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testStreamAllAuthorsAsNdjson() throws Exception {
+        logger.info("Attempting to stream all authors as NDJSON");
+        MvcResult asyncResult = mockMvc.perform(get("/library/authors").accept(MediaType.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON_VALUE))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(libraryService.getAllAuthors().size(), lines.length);
+        Assertions.assertTrue(lines[0].contains("\"authorId\":\"A101\""));
+        logger.info("Successfully streamed the authors");
+    }
+
+    //With reWriteBatchedInserts the driver answers SUCCESS_NO_INFO for every row, which says nothing about ON CONFLICT
+    @Test
+    void testCreateAuthorsBatchWithoutRowCounts() {
+        AuthorRepository authorRepository = Mockito.mock(AuthorRepository.class);
+        BookRepository bookRepository = Mockito.mock(BookRepository.class);
+        Mockito.when(authorRepository.findExistingAuthorIds(Mockito.any())).thenReturn(Set.of());
+        Mockito.when(authorRepository.createAuthors(Mockito.any()))
+                .thenReturn(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+        LibraryService service = new LibraryService(bookRepository, authorRepository, jdbcTemplate,
+                Mockito.mock(LibraryCache.class), Mockito.mock(AuthorDirectory.class), true);
+
+        List<BatchItemResult> results = service.createAuthors(List.of(
+                new Author("A301", "Ryan Holiday"), new Author("A302", "Morgan Housel")));
+
+        Assertions.assertEquals(List.of(BatchItemResult.Status.UNKNOWN, BatchItemResult.Status.UNKNOWN),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        //The link itself checks the stored author name, so an id taken by someone else links nothing
+        Mockito.verify(bookRepository).linkBooksToAuthor("A301", "Ryan Holiday");
+        Mockito.verify(bookRepository).linkBooksToAuthor("A302", "Morgan Housel");
+    }
+
+    @Test
+    void testCreateBooksBatch() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Book> books = List.of(
+                new Book("B201", "Robin Sharma", "The 5 AM Club", objectMapper.createObjectNode().put("genre", "Self-Help")),
+                new Book("B101", "James Clear", "Atomic Habits", objectMapper.createObjectNode().put("genre", "Self-Help")),
+                new Book("B202", "Robin Sharma", "", objectMapper.createObjectNode().put("genre", "Self-Help")),
+                new Book("B201", "Robin Sharma", "The 5 AM Club", objectMapper.createObjectNode().put("genre", "Self-Help")));
+        logger.info("Attempting to create {} books in one batch", books.size());
+        mockMvc.perform(post("/library/books:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(books)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[1].status").value("CONFLICT"))
+                .andExpect(jsonPath("$[2].status").value("INVALID"))
+                .andExpect(jsonPath("$[3].status").value("CONFLICT"));
+        Assertions.assertTrue(libraryService.getBook("B201").isPresent());
+        libraryService.deleteBook("B201");
+        logger.info("Successfully created the books batch");
+    }
+
+    @Test
+    void testUpdateBook() throws Exception {
+        String bookId = "B102";
+        Book updatedBook = new Book(bookId, "Paulo Coelho", "The Alchemist",
+                new ObjectMapper().createObjectNode().put("publishing year", "1988").put("genre", "Fiction"));
+        logger.info("Attempting to update an existing book with bookId: {}", bookId);
+        mockMvc.perform(put("/library/books/{bookId}", bookId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(updatedBook)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Book Updated Successfully"));
+
+        logger.info("Attempting to update a non existing book");
+        mockMvc.perform(put("/library/books/{bookId}", "B100")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(updatedBook)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testCreateExistingAuthor() throws Exception {
+        Author existingAuthor = new Author("A101", "James Clear");
+        logger.info("Attempting to create an author that already exists");
+        mockMvc.perform(post("/library/authors")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(existingAuthor)))
+                .andExpect(status().isConflict())
+                .andExpect(content().string("Author already exist"));
+    }
+
+    @Test
+    void testDeleteBooksByAuthorNameAfterRename() throws Exception {
+        libraryService.createAuthor(new Author("A401", "Old Name"));
+        libraryService.createBook(new Book("B401", "Old Name", "Written Before", new ObjectMapper().readTree("{\"genre\": \"Fiction\"}")));
+        libraryService.createBook(new Book("B402", "New Name", "Written After", new ObjectMapper().readTree("{\"genre\": \"Fiction\"}")));
+        try {
+            logger.info("Attempting to rename an author and delete the books by the new name");
+            Assertions.assertTrue(libraryService.updateAuthor(new Author("A401", "New Name")));
+            Assertions.assertNull(libraryService.getBook("B401").orElseThrow().getAuthorId());
+            Assertions.assertEquals("A401", libraryService.getBook("B402").orElseThrow().getAuthorId());
+
+            Assertions.assertEquals(1, libraryService.deleteBooksByAuthorName("New Name"));
+            Assertions.assertTrue(libraryService.getBook("B401").isPresent());
+            Assertions.assertTrue(libraryService.getBook("B402").isEmpty());
+        } finally {
+            libraryService.deleteBook("B401");
+            libraryService.deleteBook("B402");
+            libraryService.deleteAuthor("A401");
+        }
+    }
+
+    @Test
+    void testCacheStats() throws Exception {
+        String bookId = "B101";
+        libraryService.getBook(bookId);
+        logger.info("Attempting to fetch the cache statistics");
+        mockMvc.perform(get("/library/books/{bookId}", bookId))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/library/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books.hitCount").isNumber())
+                .andExpect(jsonPath("$.books.estimatedSize").isNumber())
+                .andExpect(jsonPath("$.authors.missCount").isNumber());
+        Assertions.assertTrue((Long) libraryService.cacheStats().get("books").get("hitCount") > 0);
+    }
+
+    @Test
+    void testBooksJoinAuthorsMatchesSqlJoin() throws Exception {
+        logger.info("Comparing the in-memory books-join-authors with the SQL join");
+        List<Map<String, Object>> sqlRows = jdbcTemplate.queryForList("SELECT b.book_id, a.author_id, b.book_title " +
+                "FROM books b JOIN authors a ON b.author_id = a.author_id");
+        Set<String> expected = new HashSet<>();
+        for (Map<String, Object> row : sqlRows) {
+            expected.add(row.get("book_id") + "|" + row.get("author_id") + "|" + row.get("book_title"));
+        }
+        Set<String> actual = new HashSet<>();
+        for (Map<String, Object> row : libraryService.booksJoinAuthors()) {
+            actual.add(row.get("book_id") + "|" + row.get("author_id") + "|" + row.get("book_title"));
+        }
+        Assertions.assertFalse(expected.isEmpty());
+        Assertions.assertEquals(expected, actual);
+        mockMvc.perform(get("/library/books-join-authors"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(sqlRows.size())));
+    }
+
+    @Test
+    void testGetBookDetailIsPassedThrough() throws Exception {
+        String bookId = "B104";
+        logger.info("Attempting to fetch the raw bookDetail of bookId: {}", bookId);
+        String body = mockMvc.perform(get("/library/books/{bookId}", bookId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookDetail").exists())
+                .andExpect(jsonPath("$.bookDetailJson").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        //The text written as it is must be the same JSON the parsed detail would have produced
+        Book book = libraryService.getBook(bookId).orElseThrow();
+        Assertions.assertEquals(book.getBookDetail(), new ObjectMapper().readTree(body).get("bookDetail"));
+    }
+
+    @Test
+    void testGetBooksWithFields() throws Exception {
+        logger.info("Attempting to fetch only the titles of the books");
+        mockMvc.perform(get("/library/books").param("fields", "bookTitle").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].bookId").value("B101"))
+                .andExpect(jsonPath("$[0].bookTitle").value("Atomic Habits"))
+                .andExpect(jsonPath("$[0].bookAuthor").doesNotExist())
+                .andExpect(jsonPath("$[0].bookDetail").doesNotExist())
+                .andExpect(header().exists(LibraryController.NEXT_CURSOR_HEADER));
+
+        mockMvc.perform(get("/library/authors/{authorId}", "A101").param("fields", "authorName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.authorName").value("James Clear"));
+
+        mockMvc.perform(get("/library/books/{bookId}", "B101").param("fields", "bookPrice"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetBooksWithInvalidFilter() throws Exception {
+        logger.info("Attempting to filter books with invalid bookDetail filters");
+        mockMvc.perform(get("/library/books").param("publishedFrom", "20xx"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/library/books").param("detail", "[\"Self-Help\"]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSearchBooks() throws Exception {
+        logger.info("Attempting to search the books by title");
+        mockMvc.perform(get("/library/books/search").param("q", "HABIT"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].bookId").value("B101"));
+
+        //Terms match the start of a word, like the full text prefix query on PostgreSQL
+        mockMvc.perform(get("/library/books/search").param("q", "abit"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        String nextCursor = mockMvc.perform(get("/library/books/search").param("q", "a").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].bookId").value("B101"))
+                .andReturn().getResponse().getHeader(LibraryController.NEXT_CURSOR_HEADER);
+        mockMvc.perform(get("/library/books/search").param("q", "a").param("limit", "1").param("after", nextCursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bookId").value("B102"));
+
+        mockMvc.perform(get("/library/books/search").param("q", "!!"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSuggestAuthors() throws Exception {
+        logger.info("Attempting to suggest authors for a prefix");
+        mockMvc.perform(get("/library/authors/suggest").param("prefix", "ja"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].authorName").value("James Clear"));
+
+        libraryService.createAuthor(new Author("A201", "Jane Austen"));
+        mockMvc.perform(get("/library/authors/suggest").param("prefix", "JA").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].authorName").value("James Clear"));
+        mockMvc.perform(get("/library/authors/suggest").param("prefix", "jan"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].authorId").value("A201"));
+        libraryService.deleteAuthor("A201");
+        mockMvc.perform(get("/library/authors/suggest").param("prefix", "jan"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void testGetBooksByAuthor() throws Exception {
+        logger.info("Attempting to fetch the books of an author one at a time");
+        JsonNode bookDetail = new ObjectMapper().createObjectNode().put("genre", "Fantasy");
+        //B301 is written before its author exists and gets linked when the author is created
+        libraryService.createBook(new Book("B301", "Ursula Writer", "Wizard of the Isles", bookDetail));
+        libraryService.createAuthor(new Author("A301", "Ursula Writer"));
+        libraryService.createBook(new Book("B302", "Ursula Writer", "The Far Shore", bookDetail));
+        try {
+            String nextCursor = mockMvc.perform(get("/library/authors/{authorId}/books", "A301").param("limit", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(1)))
+                    .andExpect(jsonPath("$[0].bookId").value("B301"))
+                    .andExpect(jsonPath("$[0].authorId").value("A301"))
+                    .andReturn().getResponse().getHeader(LibraryController.NEXT_CURSOR_HEADER);
+
+            mockMvc.perform(get("/library/authors/{authorId}/books", "A301").param("limit", "1").param("after", nextCursor))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(1)))
+                    .andExpect(jsonPath("$[0].bookId").value("B302"))
+                    .andExpect(header().doesNotExist(LibraryController.NEXT_CURSOR_HEADER));
+        } finally {
+            libraryService.deleteBook("B301");
+            libraryService.deleteBook("B302");
+            libraryService.deleteAuthor("A301");
+        }
+        logger.info("Successfully fetched the books of the author page by page");
+    }
+
+    @Test
+    void testRepositoryMetrics() throws Exception {
+        logger.info("Attempting to fetch a page of books and read the repository metrics");
+        mockMvc.perform(get("/library/books").param("limit", "3"))
+                .andExpect(status().isOk());
+
+        Timer timer = meterRegistry.find("library.repository").tag("method", "getBooksPage").timer();
+        Assertions.assertNotNull(timer);
+        Assertions.assertTrue(timer.count() > 0);
+        DistributionSummary rows = meterRegistry.find("library.repository.rows").tag("query", "getBooksPage").summary();
+        Assertions.assertNotNull(rows);
+        Assertions.assertTrue(rows.count() > 0);
+        Assertions.assertNotNull(meterRegistry.find("library.service").tag("method", "getBooksPage").timer());
+        //The payload summary is in bytes: the two bytes of é in UTF-8 count twice
+        Book book = new Book();
+        book.setBookDetailJson("{\"city\": \"Montréal\"}");
+        Assertions.assertEquals(21, LibraryMetrics.detailLength(book));
+        Assertions.assertNotNull(meterRegistry.find("hikaricp.connections.active").gauge());
+    }
+
+    @Test
+    void testConditionalGetBook() throws Exception {
+        logger.info("Attempting to fetch a book again with the ETag of the first response");
+        MvcResult first = mockMvc.perform(get("/library/books/{bookId}", "B101"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn();
+        List<String> etags = first.getResponse().getHeaders("ETag");
+        Assertions.assertEquals(1, etags.size());
+
+        mockMvc.perform(get("/library/books/{bookId}", "B101").header("If-None-Match", etags.get(0)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etags.get(0)))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/library/books/{bookId}", "B101").header("If-None-Match", "\"0-0\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookId").value("B101"));
+
+        String pageEtag = mockMvc.perform(get("/library/books").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        Assertions.assertNotNull(pageEtag);
+        mockMvc.perform(get("/library/books").param("limit", "2").header("If-None-Match", pageEtag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/library/books").param("limit", "3").header("If-None-Match", pageEtag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)));
+    }
+
+    @Test
+    void testUpdateBookIfMatch() throws Exception {
+        JsonNode bookDetail = new ObjectMapper().createObjectNode().put("genre", "Fantasy");
+        libraryService.createBook(new Book("B401", "Ursula Writer", "Tombs of the Isles", bookDetail));
+        try {
+            String etag = mockMvc.perform(get("/library/books/{bookId}", "B401"))
+                    .andReturn().getResponse().getHeader("ETag");
+            Book updatedBook = new Book("B401", "Ursula Writer", "The Tombs", bookDetail);
+            logger.info("Attempting to update a book with the ETag it was read with");
+            mockMvc.perform(put("/library/books/{bookId}", "B401")
+                            .header("If-Match", etag)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(new ObjectMapper().writeValueAsString(updatedBook)))
+                    .andExpect(status().isOk());
+
+            logger.info("Attempting to update the book again with the now stale ETag");
+            mockMvc.perform(put("/library/books/{bookId}", "B401")
+                            .header("If-Match", etag)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(new ObjectMapper().writeValueAsString(updatedBook)))
+                    .andExpect(status().isPreconditionFailed());
+            mockMvc.perform(get("/library/books/{bookId}", "B401").header("If-None-Match", etag))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.bookTitle").value("The Tombs"));
+        } finally {
+            libraryService.deleteBook("B401");
+        }
+    }
+
+    @Test
+    void testBinaryContentNegotiation() throws Exception {
+        ObjectMapper jsonMapper = new ObjectMapper();
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        logger.info("Attempting to fetch a book as CBOR and as Smile");
+        JsonNode json = jsonMapper.readTree(mockMvc.perform(get("/library/books/{bookId}", "B101"))
+                .andReturn().getResponse().getContentAsByteArray());
+        byte[] cbor = mockMvc.perform(get("/library/books/{bookId}", "B101").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+        Assertions.assertEquals(json, cborMapper.readTree(cbor));
+
+        logger.info("Checking that every representation of the book has an ETag of its own");
+        String jsonEtag = mockMvc.perform(get("/library/books/{bookId}", "B101"))
+                .andReturn().getResponse().getHeader("ETag");
+        String cborEtag = mockMvc.perform(get("/library/books/{bookId}", "B101").accept("application/cbor"))
+                .andExpect(header().string("Vary", containsString("Accept")))
+                .andReturn().getResponse().getHeader("ETag");
+        Assertions.assertNotEquals(jsonEtag, cborEtag);
+        mockMvc.perform(get("/library/books/{bookId}", "B101").accept("application/cbor").header("If-None-Match", cborEtag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/library/books/{bookId}", "B101").accept("application/cbor").header("If-None-Match", jsonEtag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/library/authors").param("limit", "2").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Vary", containsString("Accept")));
+        byte[] smile = mockMvc.perform(get("/library/books").param("fields", "bookDetail").param("limit", "2")
+                        .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+        Assertions.assertEquals(json.get("bookDetail"), smileMapper.readTree(smile).get(0).get("bookDetail"));
+
+        logger.info("Attempting to create a book from a CBOR body");
+        Book book = new Book("B501", "Ursula Writer", "The Other Wind", jsonMapper.createObjectNode().put("genre", "Fantasy"));
+        mockMvc.perform(post("/library/books")
+                        .contentType("application/cbor")
+                        .content(cborMapper.writeValueAsBytes(book)))
+                .andExpect(status().isOk());
+        try {
+            Assertions.assertEquals("The Other Wind", libraryService.getBook("B501").orElseThrow().getBookTitle());
+        } finally {
+            libraryService.deleteBook("B501");
+        }
+    }
+
+    @Test
+    void testLookupBooksAndAuthors() throws Exception {
+        logger.info("Attempting to fetch several books by id, with a repeated and a missing id");
+        mockMvc.perform(get("/library/books").param("ids", "B103,B100,B101,B103"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].id").value("B103"))
+                .andExpect(jsonPath("$[0].status").value("FOUND"))
+                .andExpect(jsonPath("$[0].item.bookId").value("B103"))
+                .andExpect(jsonPath("$[1].id").value("B100"))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$[1].item").isEmpty())
+                .andExpect(jsonPath("$[2].item.bookTitle").value("Atomic Habits"));
+
+        mockMvc.perform(post("/library/authors:lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"A102\", \"A101\", \"A100\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[1].item.authorName").value("James Clear"))
+                .andExpect(jsonPath("$[2].status").value("NOT_FOUND"));
+
+        logger.info("Attempting to look up more books than allowed");
+        List<String> tooMany = new ArrayList<>();
+        for (int i = 0; i <= LibraryService.MAX_LOOKUP_SIZE; i++) {
+            tooMany.add("B" + i);
+        }
+        mockMvc.perform(post("/library/books:lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(tooMany)))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,71 @@
+package com.libraryManagement;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryManagement.model.Author;
+import com.libraryManagement.model.Book;
+import com.libraryManagement.reactive.ReactiveReadServer;
+import com.libraryManagement.service.LibraryService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class ReactiveReadApiTests {
+
+    @Autowired
+    private ReactiveReadServer reactiveReadServer;
+
+    @Autowired
+    private LibraryService libraryService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToServer().baseUrl("http://localhost:" + reactiveReadServer.getPort()).build();
+    }
+
+    @Test
+    void testGetBookAndAuthor() throws Exception {
+        byte[] body = webTestClient.get().uri("/library/books/B101").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.bookTitle").isEqualTo("Atomic Habits")
+                .jsonPath("$.bookDetailJson").doesNotExist()
+                .returnResult().getResponseBody();
+        //The detail text comes through exactly as on the blocking path
+        Book book = libraryService.getBook("B101").orElseThrow();
+        Assertions.assertEquals(book.getBookDetail(), new ObjectMapper().readTree(body).get("bookDetail"));
+        webTestClient.get().uri("/library/authors/A101").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.authorName").isEqualTo("James Clear");
+        //Same status as the MVC endpoint for a missing id
+        webTestClient.get().uri("/library/books/B999").exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    void testStreamsLists() {
+        List<Book> books = webTestClient.get().uri("/library/books").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Book.class).getResponseBody().collectList().block();
+        Assertions.assertEquals(List.of("B101", "B102", "B103", "B104", "B105"),
+                books.stream().map(Book::getBookId).toList());
+
+        webTestClient.get().uri("/library/authors").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Author.class).hasSize(5);
+    }
+}
@@ -0,0 +1,164 @@
+package com.libraryManagement;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryManagement.controller.LibraryController;
+import com.libraryManagement.model.Book;
+import com.libraryManagement.routing.ConsistencyToken;
+import com.libraryManagement.routing.ConsistencyTokenFilter;
+import com.libraryManagement.routing.ReadRouting;
+import com.libraryManagement.routing.ReplicaRead;
+import com.libraryManagement.routing.ReplicaReadAspect;
+import com.libraryManagement.routing.ReplicaRoutingDataSource;
+import com.libraryManagement.service.LibraryService;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Two in-memory databases stand in for the primary and a replica that has not received the write yet
+public class ReplicaRoutingDataSourceTests {
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private ShelfReader reader;
+    private ReplicaRoutingDataSource routing;
+    private DataSource primaryDataSource;
+    private DataSource replicaDataSource;
+
+    public static class ShelfReader {
+        private final JdbcTemplate jdbcTemplate;
+
+        public ShelfReader(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @ReplicaRead
+        public List<String> shelves() {
+            return jdbcTemplate.queryForList("select shelf_id from shelves", String.class);
+        }
+
+        public List<String> shelvesFromPrimary() {
+            return jdbcTemplate.queryForList("select shelf_id from shelves", String.class);
+        }
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+
+    @BeforeEach
+    void setUp() {
+        primaryDataSource = database("routing_primary");
+        replicaDataSource = database("routing_replica");
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        primary.execute("create table shelves (shelf_id varchar(10) primary key)");
+        replica.execute("create table shelves (shelf_id varchar(10) primary key)");
+        primary.update("insert into shelves values ('S1')");
+
+        routing = new ReplicaRoutingDataSource(primaryDataSource, List.of(replicaDataSource),
+                Duration.ofMinutes(1), ReplicaRoutingDataSource.Consistency.PIN, Duration.ZERO);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new ShelfReader(new JdbcTemplate(routing)));
+        proxyFactory.addAspect(new ReplicaReadAspect());
+        reader = proxyFactory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadRouting.clearToken();
+        primary.execute("drop table shelves");
+        replica.execute("drop table shelves");
+    }
+
+    @Test
+    void testRoutesReplicaReadsToTheReplica() {
+        Assertions.assertEquals(List.of(), reader.shelves());
+        Assertions.assertEquals(List.of("S1"), reader.shelvesFromPrimary());
+    }
+
+    @Test
+    void testConsistencyTokenPinsReadsToThePrimary() {
+        ReadRouting.setToken(ConsistencyToken.decode(new ConsistencyToken(System.currentTimeMillis(), null).encode()));
+        Assertions.assertEquals(List.of("S1"), reader.shelves());
+
+        //Once the pin duration has passed the replica is assumed to have caught up
+        ReadRouting.setToken(new ConsistencyToken(System.currentTimeMillis() - Duration.ofMinutes(2).toMillis(), null));
+        Assertions.assertEquals(List.of(), reader.shelves());
+    }
+
+    //The slow query log takes its EXPLAIN on another thread from the pool the statement's connection came from
+    @Test
+    void testRemembersThePoolOfTheLastConnection() {
+        reader.shelves();
+        Assertions.assertSame(replicaDataSource, routing.lastTarget());
+        reader.shelvesFromPrimary();
+        Assertions.assertSame(primaryDataSource, routing.lastTarget());
+    }
+
+    @Test
+    void testDecodesPostgresTokens() {
+        ConsistencyToken token = ConsistencyToken.decode(new ConsistencyToken(42, "0/16B3748").encode());
+        Assertions.assertEquals(42, token.getWrittenAtMillis());
+        Assertions.assertEquals("0/16B3748", token.getLsn());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ConsistencyToken.decode("not a token"));
+    }
+
+    //The NDJSON body is written on an async thread after the filter has returned; the token must still apply there
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStreamingRightAfterAWriteReadsFromThePrimary() throws Exception {
+        LibraryService libraryService = Mockito.mock(LibraryService.class);
+        Mockito.when(libraryService.createBook(Mockito.any())).thenReturn(true);
+        Mockito.doAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            reader.shelves().forEach(shelfId -> consumer.accept(new Book(shelfId, "Shelf", "Shelf", null)));
+            return null;
+        }).when(libraryService).streamAllBooks(Mockito.any());
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("dataSource", routing);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new LibraryController(libraryService, new ObjectMapper()))
+                .addFilters(new ConsistencyTokenFilter(beanFactory.getBeanProvider(DataSource.class)))
+                .build();
+
+        String token = mockMvc.perform(post("/library/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookId\": \"S1\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(ConsistencyTokenFilter.CONSISTENCY_TOKEN_HEADER);
+        Assertions.assertNotNull(token);
+
+        MvcResult streaming = mockMvc.perform(get("/library/books")
+                        .accept(MediaType.APPLICATION_NDJSON_VALUE)
+                        .header(ConsistencyTokenFilter.CONSISTENCY_TOKEN_HEADER, token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        //The replica has not received S1, so it is only in the stream if the read was pinned to the primary
+        mockMvc.perform(asyncDispatch(streaming))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"bookId\":\"S1\"")));
+    }
+}
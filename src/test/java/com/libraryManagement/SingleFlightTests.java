@@ -0,0 +1,84 @@
+package com.libraryManagement;
+
+import com.libraryManagement.cache.SingleFlight;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTests {
+    private static final int CALLERS = 8;
+
+    //Starts CALLERS concurrent calls for one key and lets the load finish once all but the first are waiting on it
+    private List<Future<String>> callTogether(SingleFlight<String, String> flights, ExecutorService executor,
+                                              CountDownLatch release, AtomicInteger loads, RuntimeException failure) throws Exception {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> flights.execute("B101", () -> {
+                loads.incrementAndGet();
+                awaitQuietly(release);
+                if (failure != null) {
+                    throw failure;
+                }
+                return "Atomic Habits";
+            })));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((Long) flights.stats().get("shared") < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        return results;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void testConcurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            for (Future<String> result : callTogether(flights, executor, new CountDownLatch(1), loads, null)) {
+                Assertions.assertEquals("Atomic Habits", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(0, flights.inFlight());
+        //Nothing is kept once the load is done, the next call loads again
+        Assertions.assertEquals("again", flights.execute("B101", () -> "again"));
+    }
+
+    @Test
+    void testFailureReachesEveryWaiter() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        IllegalStateException failure = new IllegalStateException("database unavailable");
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            for (Future<String> result : callTogether(flights, executor, new CountDownLatch(1), loads, failure)) {
+                Exception thrown = Assertions.assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+                Assertions.assertSame(failure, thrown.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(0, flights.inFlight());
+    }
+}
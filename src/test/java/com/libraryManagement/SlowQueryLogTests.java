@@ -0,0 +1,55 @@
+package com.libraryManagement;
+
+import com.libraryManagement.jdbc.SlowQuery;
+import com.libraryManagement.jdbc.SlowQueryDataSource;
+import com.libraryManagement.jdbc.SlowQueryLog;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+public class SlowQueryLogTests {
+
+    private JdbcTemplate jdbcTemplate(SlowQueryLog slowQueryLog, String database) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + database + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        return new JdbcTemplate(new SlowQueryDataSource(dataSource, slowQueryLog));
+    }
+
+    @Test
+    void testRecordsStatementsOverThreshold() {
+        SlowQueryLog slowQueryLog = new SlowQueryLog(true, Duration.ZERO, false, Duration.ofSeconds(30), 2);
+        JdbcTemplate jdbcTemplate = jdbcTemplate(slowQueryLog, "slowquery_recorded");
+        jdbcTemplate.execute("create table shelves (shelf_id varchar(10) primary key, shelf_size int)");
+        jdbcTemplate.update("insert into shelves values (?, ?)", "S1", 10);
+        jdbcTemplate.update("insert into shelves values (?, ?)", "S2", 20);
+
+        List<String> ids = jdbcTemplate.queryForList("select shelf_id from shelves where shelf_size > ? and shelf_id <> ?",
+                String.class, 5, "S9");
+
+        Assertions.assertEquals(2, ids.size());
+        List<SlowQuery> recent = slowQueryLog.recent();
+        //The capacity is two, so only the last insert and the query are kept, newest first
+        Assertions.assertEquals(2, recent.size());
+        SlowQuery query = recent.get(0);
+        Assertions.assertEquals("select shelf_id from shelves where shelf_size > ? and shelf_id <> ?", query.getSql());
+        Assertions.assertEquals(2, query.getRows());
+        Assertions.assertEquals(List.of("5", "?(String,2)"), query.getParams());
+        Assertions.assertEquals("SlowQueryLogTests.testRecordsStatementsOverThreshold", query.getCaller());
+        Assertions.assertEquals(1, recent.get(1).getRows());
+    }
+
+    @Test
+    void testIgnoresStatementsUnderThreshold() {
+        SlowQueryLog slowQueryLog = new SlowQueryLog(true, Duration.ofMinutes(1), false, Duration.ofSeconds(30), 10);
+        JdbcTemplate jdbcTemplate = jdbcTemplate(slowQueryLog, "slowquery_ignored");
+        jdbcTemplate.execute("create table shelves (shelf_id varchar(10) primary key)");
+        jdbcTemplate.queryForList("select shelf_id from shelves", String.class);
+
+        Assertions.assertTrue(slowQueryLog.recent().isEmpty());
+    }
+}
@@ -26,4 +26,7 @@ INSERT INTO authors(author_id, author_name)
 VALUES ('A104', 'Brain Tracy');
 
 INSERT INTO authors(author_id, author_name)
-VALUES ('A105', 'Cal Newport');
\ No newline at end of file
+VALUES ('A105', 'Cal Newport');
+
+UPDATE books SET author_id = (SELECT MIN(a.author_id) FROM authors a WHERE a.author_name = books.book_author)
+WHERE author_id IS NULL;
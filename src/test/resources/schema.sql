@@ -2,10 +2,21 @@ create table books (
     book_id varchar(50) primary key,
     book_author varchar(50) not null,
     book_title varchar(50) not null,
-    book_detail jsonb not null
+    book_detail jsonb not null,
+    author_id varchar(10),
+    version bigint default 1 not null,
+    updated_at timestamp with time zone default current_timestamp not null
 );
 
 create table authors (
     author_id varchar(10) primary key,
-    author_name varchar(50) not null
+    author_name varchar(50) not null,
+    version bigint default 1 not null,
+    updated_at timestamp with time zone default current_timestamp not null
 );
+
+alter table books add constraint books_author_id_fk foreign key (author_id) references authors (author_id) on delete set null;
+
+create index books_author_id_book_id_idx on books (author_id, book_id);
+
+create index authors_author_name_idx on authors (author_name);